@@ -0,0 +1,49 @@
+package com.ecommerce.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    
+    public static final int MAX_SIZE = 100;
+    
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+    
+    /**
+     * Rejects page sizes outside 1..{@link #MAX_SIZE} before they reach a query, where a
+     * negative or huge size would read the whole collection.
+     */
+    public static void checkSize(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SIZE);
+        }
+    }
+    
+    /**
+     * Builds a page from a keyset query that fetched {@code size + 1} rows; the extra
+     * row only signals that another page exists and is dropped from the content.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, PageCursor> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)).encode() : null;
+        return CursorPage.<T>builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+}
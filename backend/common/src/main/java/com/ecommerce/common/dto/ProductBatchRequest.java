@@ -0,0 +1,23 @@
+package com.ecommerce.common.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchRequest {
+    
+    public static final int MAX_IDS = 500;
+    
+    @NotEmpty(message = "Product IDs are required")
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " product IDs per request")
+    private List<String> ids;
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Command sent by order-service on the stock-commands topic, keyed by reservation id so
+ * that the reserve and release commands for one order are handled in order.
+ * Product-service answers on stock-replies with a {@link StockReservationResult}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StockReservationCommand {
+    
+    public static final String TOPIC = "stock-commands";
+    public static final String REPLY_TOPIC = "stock-replies";
+    
+    private Type type;
+    private String reservationId;
+    private Long tenantId;
+    private List<StockReservationRequest.Item> items;
+    
+    public enum Type {
+        RESERVE, RELEASE
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StockReservationResult {
+    private String reservationId;
+    private Status status;
+    private String failedProductId;
+    private String message;
+    
+    @JsonIgnore
+    public boolean isReserved() {
+        return status == Status.RESERVED;
+    }
+    
+    public enum Status {
+        PENDING, RESERVED, RELEASED, FAILED
+    }
+}
@@ -1,14 +1,55 @@
 package com.ecommerce.order.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * HTTP client for calls to other services: one shared JDK {@link HttpClient} (keep-alive
+ * connection reuse, HTTP/2 where the server supports it, HTTP/1.1 otherwise) with connect
+ * and read timeouts, a per-route limit on concurrent requests, and an executor for
+ * fanning independent calls out in parallel.
+ */
 @Configuration
 public class RestTemplateConfig {
     
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient httpClient(@Value("${app.http-client.connect-timeout:2s}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+    
+    @Bean
+    public RestTemplate restTemplate(HttpClient httpClient,
+                                     @Value("${app.http-client.read-timeout:5s}") Duration readTimeout,
+                                     @Value("${app.http-client.max-requests-per-route:50}") int maxRequestsPerRoute,
+                                     @Value("${app.http-client.route-acquire-timeout:1s}") Duration routeAcquireTimeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new RouteLimitInterceptor(maxRequestsPerRoute, routeAcquireTimeout));
+        return restTemplate;
+    }
+    
+    @Bean
+    public ThreadPoolTaskExecutor remoteCallExecutor(@Value("${app.http-client.fan-out-threads:32}") int threads,
+                                                     @Value("${app.http-client.fan-out-queue:256}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("remote-call-");
+        executor.initialize();
+        return executor;
     }
-} 
\ No newline at end of file
+}
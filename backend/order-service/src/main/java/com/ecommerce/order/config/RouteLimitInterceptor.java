@@ -0,0 +1,104 @@
+package com.ecommerce.order.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of in-flight requests per route (scheme, host and port), which also
+ * caps the connections the client opens to it. A request waits a bounded time for a
+ * slot and then fails instead of queueing behind a slow instance. The slot is held
+ * until the response is closed, so it covers reading the body too.
+ */
+public class RouteLimitInterceptor implements ClientHttpRequestInterceptor {
+    
+    private final int maxRequestsPerRoute;
+    private final Duration acquireTimeout;
+    private final Map<String, Semaphore> routes = new ConcurrentHashMap<>();
+    
+    public RouteLimitInterceptor(int maxRequestsPerRoute, Duration acquireTimeout) {
+        this.maxRequestsPerRoute = maxRequestsPerRoute;
+        this.acquireTimeout = acquireTimeout;
+    }
+    
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        URI uri = request.getURI();
+        String route = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+        Semaphore permits = routes.computeIfAbsent(route, key -> new Semaphore(maxRequestsPerRoute));
+        
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ResourceAccessException("No connection available for " + route + " within " + acquireTimeout.toMillis() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a connection to " + route);
+        }
+        
+        try {
+            return new PermitReleasingResponse(execution.execute(request, body), permits);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    private static final class PermitReleasingResponse implements ClientHttpResponse {
+        
+        private final ClientHttpResponse delegate;
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        PermitReleasingResponse(ClientHttpResponse delegate, Semaphore permits) {
+            this.delegate = delegate;
+            this.permits = permits;
+        }
+        
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+        
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+        
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+        
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+        
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
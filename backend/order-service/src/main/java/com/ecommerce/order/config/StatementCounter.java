@@ -0,0 +1,60 @@
+package com.ecommerce.order.config;
+
+import com.mysql.cj.MysqlConnection;
+import com.mysql.cj.Query;
+import com.mysql.cj.interceptors.QueryInterceptor;
+import com.mysql.cj.log.Log;
+import com.mysql.cj.protocol.Resultset;
+import com.mysql.cj.protocol.ServerSession;
+
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * MySQL driver interceptor that counts the statements sent to the server by the current
+ * thread while counting is switched on. A rewritten batch counts once, so the count is
+ * the number of round trips. Registered through the datasource's queryInterceptors
+ * property by the {@code benchmark} profile only.
+ */
+public class StatementCounter implements QueryInterceptor {
+    
+    private static final ThreadLocal<long[]> COUNT = new ThreadLocal<>();
+    
+    public static void start() {
+        COUNT.set(new long[1]);
+    }
+    
+    public static long stop() {
+        long[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+    
+    @Override
+    public QueryInterceptor init(MysqlConnection conn, Properties props, Log log) {
+        return this;
+    }
+    
+    @Override
+    public <T extends Resultset> T preProcess(Supplier<String> sql, Query interceptedQuery) {
+        long[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return null;
+    }
+    
+    @Override
+    public boolean executeTopLevelOnly() {
+        return true;
+    }
+    
+    @Override
+    public void destroy() {
+    }
+    
+    @Override
+    public <T extends Resultset> T postProcess(Supplier<String> sql, Query interceptedQuery, T originalResultSet, ServerSession serverSession) {
+        return null;
+    }
+}
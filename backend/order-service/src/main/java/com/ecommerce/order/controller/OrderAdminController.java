@@ -0,0 +1,113 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.order.service.CheckoutPipeline;
+import com.ecommerce.order.service.OrderArchiver;
+import com.ecommerce.order.service.OrderEventLog;
+import com.ecommerce.order.service.OrderNumberBenchmark;
+import com.ecommerce.order.service.OrderPersistenceBenchmark;
+import com.ecommerce.order.service.OrderRollupService;
+import com.ecommerce.order.service.OutboxRelay;
+import com.ecommerce.order.service.PendingOrderSweeper;
+import com.ecommerce.order.service.ProductServiceGuard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/orders/admin")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class OrderAdminController {
+    
+    private final ProductServiceGuard productServiceGuard;
+    private final Optional<OrderNumberBenchmark> orderNumberBenchmark;
+    private final OutboxRelay outboxRelay;
+    private final Optional<OrderPersistenceBenchmark> orderPersistenceBenchmark;
+    private final OrderRollupService orderRollupService;
+    private final OrderArchiver orderArchiver;
+    private final CheckoutPipeline checkoutPipeline;
+    private final OrderEventLog orderEventLog;
+    private final PendingOrderSweeper pendingOrderSweeper;
+    
+    @GetMapping("/product-client/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getProductClientStats() {
+        return ResponseEntity.ok(ApiResponse.success(productServiceGuard.getStats()));
+    }
+    
+    @PostMapping("/order-numbers/benchmark")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> benchmarkOrderNumbers(
+            @RequestParam(defaultValue = "8") int threads,
+            @RequestParam(defaultValue = "100000") int perThread) {
+        if (orderNumberBenchmark.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Order number benchmark needs the benchmark profile"));
+        }
+        try {
+            return ResponseEntity.ok(ApiResponse.success(orderNumberBenchmark.get().run(threads, perThread)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/persistence/benchmark")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> benchmarkPersistence(
+            @RequestParam(defaultValue = "1,10,100") List<Integer> lines,
+            @RequestParam(defaultValue = "20") int orders,
+            @RequestHeader("X-User-ID") Long userId,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        if (orderPersistenceBenchmark.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Persistence benchmark needs the benchmark profile"));
+        }
+        try {
+            return ResponseEntity.ok(ApiResponse.success(orderPersistenceBenchmark.get().run(lines, orders, userId, tenantId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getOutboxStats() {
+        return ResponseEntity.ok(ApiResponse.success(outboxRelay.getStats()));
+    }
+    
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<ApiResponse<Integer>> rebuildRollups(@RequestParam Long tenantId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(orderRollupService.rebuild(tenantId), "Order rollups rebuilt"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/archive/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getArchiveStats() {
+        return ResponseEntity.ok(ApiResponse.success(orderArchiver.getStats()));
+    }
+    
+    @PostMapping("/archive/run")
+    public ResponseEntity<ApiResponse<Long>> runArchive() {
+        return ResponseEntity.ok(ApiResponse.success(orderArchiver.run(), "Archive run finished"));
+    }
+    
+    @GetMapping("/pending-orders/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getPendingOrderStats() {
+        return ResponseEntity.ok(ApiResponse.success(pendingOrderSweeper.getStats()));
+    }
+    
+    @GetMapping("/checkout/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCheckoutStats() {
+        return ResponseEntity.ok(ApiResponse.success(checkoutPipeline.getStats()));
+    }
+    
+    @GetMapping("/events/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getEventLogStats() {
+        return ResponseEntity.ok(ApiResponse.success(orderEventLog.getStats()));
+    }
+}
@@ -1,40 +1,149 @@
 package com.ecommerce.order.controller;
 
 import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.common.dto.CursorPage;
+import com.ecommerce.order.dto.BulkStatusUpdateRequest;
+import com.ecommerce.order.dto.BulkStatusUpdateResult;
+import com.ecommerce.order.dto.CheckoutTicket;
+import com.ecommerce.order.dto.OrderEvent;
 import com.ecommerce.order.dto.OrderRequest;
 import com.ecommerce.order.model.Order;
+import com.ecommerce.order.service.CheckoutPipeline;
+import com.ecommerce.order.service.CheckoutRejectedException;
+import com.ecommerce.order.service.IdempotencyService;
+import com.ecommerce.order.service.OrderBulkStatusService;
+import com.ecommerce.order.service.OrderEventLog;
+import com.ecommerce.order.service.OrderExportService;
 import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.service.ProductServiceUnavailableException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
 @RequiredArgsConstructor
+@Slf4j
 @CrossOrigin(origins = "*")
 public class OrderController {
     
+    private static final String VIEW_FULL = "full";
+    private static final String VIEW_SUMMARY = "summary";
+    
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderBulkStatusService orderBulkStatusService;
+    private final CheckoutPipeline checkoutPipeline;
+    private final IdempotencyService idempotencyService;
+    private final OrderEventLog orderEventLog;
     
+    /**
+     * With an Idempotency-Key header, retries of the same request replay the first
+     * response instead of creating another order.
+     */
     @PostMapping
-    public ResponseEntity<ApiResponse<Order>> createOrder(
+    public ResponseEntity<?> createOrder(
             @Valid @RequestBody OrderRequest request,
             @RequestHeader("X-User-ID") Long userId,
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return doCreateOrder(request, userId, tenantId);
+        }
+        return idempotencyService.execute(tenantId, userId, "POST /api/orders", idempotencyKey, request,
+                () -> doCreateOrder(request, userId, tenantId));
+    }
+    
+    private ResponseEntity<ApiResponse<Order>> doCreateOrder(OrderRequest request, Long userId, Long tenantId) {
         try {
             Order order = orderService.createOrder(request, userId, tenantId);
             return ResponseEntity.ok(ApiResponse.success(order, "Order created successfully"));
+        } catch (ProductServiceUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ApiResponse.error(e.getMessage(), "PRODUCT_SERVICE_UNAVAILABLE"));
+        } catch (DataAccessException | TransactionException | IllegalStateException e) {
+            return serverError("Failed to create order", e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(
+            @Valid @RequestBody OrderRequest request,
+            @RequestHeader("X-User-ID") Long userId,
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return doCheckout(request, userId, tenantId);
+        }
+        return idempotencyService.execute(tenantId, userId, "POST /api/orders/checkout", idempotencyKey, request,
+                () -> doCheckout(request, userId, tenantId));
+    }
+    
+    private ResponseEntity<ApiResponse<CheckoutTicket>> doCheckout(OrderRequest request, Long userId, Long tenantId) {
+        try {
+            CheckoutTicket ticket = checkoutPipeline.submit(request, userId, tenantId);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/checkout/" + ticket.getTicketId()))
+                    .body(ApiResponse.success(ticket, "Checkout accepted"));
+        } catch (CheckoutRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(ApiResponse.error(e.getMessage(), "CHECKOUT_BUSY"));
+        } catch (DataAccessException | TransactionException | IllegalStateException e) {
+            return serverError("Failed to accept checkout", e);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Infrastructure failures are answered with a 500 rather than a 400, so clients retry
+     * and idempotent requests do not replay the failure.
+     */
+    private static <T> ResponseEntity<ApiResponse<T>> serverError(String message, Exception e) {
+        log.error(message, e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(message + ", please retry", "INTERNAL_ERROR"));
+    }
+    
+    /**
+     * Current state of a checkout ticket. With waitMs the response is held until the
+     * ticket is done or the wait runs out, without tying up a request thread.
+     */
+    @GetMapping("/checkout/{ticketId}")
+    public CompletableFuture<ResponseEntity<ApiResponse<CheckoutTicket>>> getCheckoutTicket(
+            @PathVariable String ticketId,
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        CompletableFuture<CheckoutTicket> ticket = checkoutPipeline
+                .awaitTicket(ticketId, Duration.ofMillis(Math.min(Math.max(waitMs, 0), 30_000)))
+                .orElse(CompletableFuture.completedFuture(null));
+        return ticket.thenApply(current -> {
+            if (current == null || !current.getTenantId().equals(tenantId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.<CheckoutTicket>error("Checkout ticket not found"));
+            }
+            return ResponseEntity.ok(ApiResponse.success(current));
+        });
+    }
+    
     @PutMapping("/{id}/status")
     public ResponseEntity<ApiResponse<Order>> updateOrderStatus(
             @PathVariable Long id,
@@ -49,6 +158,19 @@ public class OrderController {
         }
     }
     
+    @PostMapping("/status/bulk")
+    public ResponseEntity<ApiResponse<BulkStatusUpdateResult>> updateOrderStatuses(
+            @Valid @RequestBody BulkStatusUpdateRequest request,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            Order.Status orderStatus = Order.Status.valueOf(request.getStatus().toUpperCase());
+            BulkStatusUpdateResult result = orderBulkStatusService.updateStatus(request.getOrderIds(), orderStatus, tenantId);
+            return ResponseEntity.ok(ApiResponse.success(result, result.getUpdated() + " orders updated"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @PutMapping("/{id}/payment")
     public ResponseEntity<ApiResponse<Order>> updatePaymentStatus(
             @PathVariable Long id,
@@ -75,6 +197,37 @@ public class OrderController {
         }
     }
     
+    /**
+     * Lifecycle events of the order, oldest first.
+     */
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<ApiResponse<List<OrderEvent>>> getOrderTimeline(
+            @PathVariable Long id,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(orderEventLog.getTimeline(id, tenantId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    /**
+     * The order as rebuilt from its latest snapshot and the events after it.
+     */
+    @GetMapping("/{id}/replay")
+    public ResponseEntity<ApiResponse<Order>> replayOrder(
+            @PathVariable Long id,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            Order order = orderEventLog.replay(id)
+                    .filter(replayed -> replayed.getTenantId().equals(tenantId))
+                    .orElseThrow(() -> new RuntimeException("No events recorded for order"));
+            return ResponseEntity.ok(ApiResponse.success(order));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/number/{orderNumber}")
     public ResponseEntity<ApiResponse<Order>> getOrderByNumber(@PathVariable String orderNumber) {
         try {
@@ -86,13 +239,16 @@ public class OrderController {
     }
     
     @GetMapping("/user")
-    public ResponseEntity<ApiResponse<List<Order>>> getOrdersByUser(
+    public ResponseEntity<ApiResponse<List<?>>> getOrdersByUser(
             @RequestHeader("X-User-ID") Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Order> orders = orderService.getOrdersByUser(userId, pageable);
+            Slice<?> orders = isSummaryView(view)
+                    ? orderService.getOrderSummariesByUser(userId, pageable)
+                    : orderService.getOrdersByUser(userId, pageable);
             return ResponseEntity.ok(ApiResponse.success(orders.getContent()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -100,25 +256,59 @@ public class OrderController {
     }
     
     @GetMapping("/tenant")
-    public ResponseEntity<ApiResponse<List<Order>>> getOrdersByTenant(
+    public ResponseEntity<ApiResponse<List<?>>> getOrdersByTenant(
             @RequestHeader("X-Tenant-ID") Long tenantId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Order> orders = orderService.getOrdersByTenant(tenantId, pageable);
+            Slice<?> orders = isSummaryView(view)
+                    ? orderService.getOrderSummariesByTenant(tenantId, pageable)
+                    : orderService.getOrdersByTenant(tenantId, pageable);
             return ResponseEntity.ok(ApiResponse.success(orders.getContent()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    @GetMapping("/user/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Order>>> getOrdersByUserCursor(
+            @RequestHeader("X-User-ID") Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage.checkSize(size);
+            CursorPage<Order> orders = orderService.getOrdersByUser(userId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(orders));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/tenant/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Order>>> getOrdersByTenantCursor(
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage.checkSize(size);
+            CursorPage<Order> orders = orderService.getOrdersByTenant(tenantId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(orders));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/user-tenant")
-    public ResponseEntity<ApiResponse<List<Order>>> getOrdersByUserAndTenant(
+    public ResponseEntity<ApiResponse<List<?>>> getOrdersByUserAndTenant(
             @RequestHeader("X-User-ID") Long userId,
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
-            List<Order> orders = orderService.getOrdersByUserAndTenant(userId, tenantId);
+            List<?> orders = isSummaryView(view)
+                    ? orderService.getOrderSummariesByUserAndTenant(userId, tenantId)
+                    : orderService.getOrdersByUserAndTenant(userId, tenantId);
             return ResponseEntity.ok(ApiResponse.success(orders));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -137,12 +327,15 @@ public class OrderController {
     }
     
     @GetMapping("/tenant/status/{status}")
-    public ResponseEntity<ApiResponse<List<Order>>> getOrdersByTenantAndStatus(
+    public ResponseEntity<ApiResponse<List<?>>> getOrdersByTenantAndStatus(
             @PathVariable String status,
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
             Order.Status orderStatus = Order.Status.valueOf(status.toUpperCase());
-            List<Order> orders = orderService.getOrdersByTenantAndStatus(tenantId, orderStatus);
+            List<?> orders = isSummaryView(view)
+                    ? orderService.getOrderSummariesByTenantAndStatus(tenantId, orderStatus)
+                    : orderService.getOrdersByTenantAndStatus(tenantId, orderStatus);
             return ResponseEntity.ok(ApiResponse.success(orders));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -161,15 +354,93 @@ public class OrderController {
     }
     
     @GetMapping("/tenant/payment/{paymentStatus}")
-    public ResponseEntity<ApiResponse<List<Order>>> getOrdersByTenantAndPaymentStatus(
+    public ResponseEntity<ApiResponse<List<?>>> getOrdersByTenantAndPaymentStatus(
             @PathVariable String paymentStatus,
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
             Order.PaymentStatus status = Order.PaymentStatus.valueOf(paymentStatus.toUpperCase());
-            List<Order> orders = orderService.getOrdersByTenantAndPaymentStatus(tenantId, status);
+            List<?> orders = isSummaryView(view)
+                    ? orderService.getOrderSummariesByTenantAndPaymentStatus(tenantId, status)
+                    : orderService.getOrdersByTenantAndPaymentStatus(tenantId, status);
             return ResponseEntity.ok(ApiResponse.success(orders));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+    
+    @GetMapping("/export/status/{status}")
+    public ResponseEntity<?> exportOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            Order.Status orderStatus = Order.Status.valueOf(status.toUpperCase());
+            OrderExportService.Format exportFormat = OrderExportService.Format.of(format);
+            return exportResponse("orders-" + orderStatus.name().toLowerCase(), exportFormat,
+                    out -> orderExportService.exportByStatus(orderStatus, exportFormat, out));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/export/tenant/status/{status}")
+    public ResponseEntity<?> exportOrdersByTenantAndStatus(
+            @PathVariable String status,
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            Order.Status orderStatus = Order.Status.valueOf(status.toUpperCase());
+            OrderExportService.Format exportFormat = OrderExportService.Format.of(format);
+            return exportResponse("orders-" + orderStatus.name().toLowerCase(), exportFormat,
+                    out -> orderExportService.exportByTenantAndStatus(tenantId, orderStatus, exportFormat, out));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/export/payment/{paymentStatus}")
+    public ResponseEntity<?> exportOrdersByPaymentStatus(
+            @PathVariable String paymentStatus,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            Order.PaymentStatus status = Order.PaymentStatus.valueOf(paymentStatus.toUpperCase());
+            OrderExportService.Format exportFormat = OrderExportService.Format.of(format);
+            return exportResponse("orders-payment-" + status.name().toLowerCase(), exportFormat,
+                    out -> orderExportService.exportByPaymentStatus(status, exportFormat, out));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/export/tenant/payment/{paymentStatus}")
+    public ResponseEntity<?> exportOrdersByTenantAndPaymentStatus(
+            @PathVariable String paymentStatus,
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            Order.PaymentStatus status = Order.PaymentStatus.valueOf(paymentStatus.toUpperCase());
+            OrderExportService.Format exportFormat = OrderExportService.Format.of(format);
+            return exportResponse("orders-payment-" + status.name().toLowerCase(), exportFormat,
+                    out -> orderExportService.exportByTenantAndPaymentStatus(tenantId, status, exportFormat, out));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    private static ResponseEntity<StreamingResponseBody> exportResponse(String name, OrderExportService.Format format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+    
+    private static boolean isSummaryView(String view) {
+        if (VIEW_SUMMARY.equalsIgnoreCase(view)) {
+            return true;
+        }
+        if (!VIEW_FULL.equalsIgnoreCase(view)) {
+            throw new IllegalArgumentException("Unknown view: " + view);
+        }
+        return false;
+    }
+}
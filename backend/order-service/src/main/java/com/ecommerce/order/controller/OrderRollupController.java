@@ -0,0 +1,49 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.order.dto.OrderRollup;
+import com.ecommerce.order.service.OrderRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders/rollups")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class OrderRollupController {
+    
+    private final OrderRollupService orderRollupService;
+    
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<OrderRollup>>> getRollups(
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            OrderRollupService.Granularity bucket = OrderRollupService.Granularity.valueOf(granularity.toUpperCase());
+            return ResponseEntity.ok(ApiResponse.success(orderRollupService.getRollups(tenantId, bucket, from, to)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/totals")
+    public ResponseEntity<ApiResponse<OrderRollup>> getTotals(
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            OrderRollupService.Granularity bucket = OrderRollupService.Granularity.valueOf(granularity.toUpperCase());
+            return ResponseEntity.ok(ApiResponse.success(orderRollupService.getTotals(tenantId, bucket, from, to)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
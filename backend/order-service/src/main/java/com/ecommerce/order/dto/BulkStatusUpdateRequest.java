@@ -0,0 +1,27 @@
+package com.ecommerce.order.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateRequest {
+    
+    public static final int MAX_ORDERS = 10000;
+    
+    @NotEmpty(message = "Order ids are required")
+    @Size(max = MAX_ORDERS, message = "At most " + MAX_ORDERS + " orders per request")
+    private List<Long> orderIds;
+    
+    @NotBlank(message = "Status is required")
+    private String status;
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateResult {
+    
+    public enum Outcome {
+        UPDATED, NOT_FOUND, INVALID_TRANSITION
+    }
+    
+    private int updated;
+    
+    private int rejected;
+    
+    private List<Item> results;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        
+        private Long orderId;
+        
+        private Outcome outcome;
+        
+        private Order.Status previousStatus;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an asynchronous checkout. Once COMPLETED the order exists and follows the
+ * usual PENDING to CONFIRMED or CANCELLED stock reservation flow.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutTicket {
+    
+    public enum Status {
+        QUEUED, PRICING, PERSISTING, COMPLETED, FAILED;
+        
+        public boolean isDone() {
+            return this == COMPLETED || this == FAILED;
+        }
+    }
+    
+    private String ticketId;
+    
+    private Long tenantId;
+    
+    private Status status;
+    
+    private Long orderId;
+    
+    private String orderNumber;
+    
+    private String message;
+    
+    private LocalDateTime acceptedAt;
+    
+    private LocalDateTime completedAt;
+}
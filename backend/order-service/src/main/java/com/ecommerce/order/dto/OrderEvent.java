@@ -0,0 +1,36 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of an order's lifecycle log. Status and payment status are the values after
+ * the event; a status change leaves the payment status null and vice versa.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEvent {
+    
+    public enum Type {
+        CREATED, STATUS_CHANGED, PAYMENT_CHANGED
+    }
+    
+    private Long id;
+    
+    private Long orderId;
+    
+    private Type type;
+    
+    private Order.Status status;
+    
+    private Order.PaymentStatus paymentStatus;
+    
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,40 @@
+package com.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order totals for one tenant and one day or hour, counted by the time orders were
+ * placed. Status counts reflect each order's current status.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRollup {
+    
+    private LocalDateTime bucketStart;
+    
+    private long orderCount;
+    
+    private BigDecimal grossAmount;
+    
+    private BigDecimal paidAmount;
+    
+    private BigDecimal refundedAmount;
+    
+    private long pendingCount;
+    
+    private long confirmedCount;
+    
+    private long shippedCount;
+    
+    private long deliveredCount;
+    
+    private long cancelledCount;
+}
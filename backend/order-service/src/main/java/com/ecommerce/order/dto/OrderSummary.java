@@ -0,0 +1,41 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat row for order list views, read with a JPQL constructor expression so addresses,
+ * notes and line items are never loaded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    
+    private Long id;
+    
+    private String orderNumber;
+    
+    private Long userId;
+    
+    private Long tenantId;
+    
+    private Order.Status status;
+    
+    private BigDecimal totalAmount;
+    
+    private Order.PaymentStatus paymentStatus;
+    
+    private String paymentMethod;
+    
+    private Integer itemCount;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+}
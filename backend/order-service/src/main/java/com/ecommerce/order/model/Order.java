@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Entity
@@ -18,8 +19,11 @@ import java.util.List;
 @AllArgsConstructor
 public class Order {
     
+    // Pooled table ids let Hibernate batch inserts, which IDENTITY rules out
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orders_ids")
+    @TableGenerator(name = "orders_ids", table = "id_generators", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "orders", allocationSize = 100)
     private Long id;
     
     @Column(name = "order_number", unique = true, nullable = false)
@@ -60,18 +64,32 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Not @Version: bulk and conditional updates bump it in SQL, and readers only use it to order events
+    @Column(nullable = false)
+    private Long version;
+    
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<OrderItem> orderItems;
     
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        createdAt = now();
+        updatedAt = createdAt;
+        version = 0L;
     }
     
     @PreUpdate
     protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
+        updatedAt = now();
+        version = version == null ? 1L : version + 1;
+    }
+    
+    /**
+     * The current time at the precision of the timestamp columns, so the values published
+     * from memory equal the ones stored.
+     */
+    public static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
     
     public enum Status {
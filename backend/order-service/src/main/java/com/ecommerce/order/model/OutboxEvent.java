@@ -0,0 +1,42 @@
+package com.ecommerce.order.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event waiting to be published to Kafka, written in the same transaction as the
+ * change it describes and deleted by the relay once Kafka has acknowledged it. Records
+ * are keyed by the aggregate id and carry the event type, if any, in a header.
+ */
+@Entity
+@Table(name = "outbox_events")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "aggregate_id", nullable = false)
+    private String aggregateId;
+    
+    @Column(nullable = false)
+    private String topic;
+    
+    @Column(name = "event_type")
+    private String eventType;
+    
+    @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
+    private String payload;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
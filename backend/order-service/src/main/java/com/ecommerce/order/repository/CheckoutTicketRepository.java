@@ -0,0 +1,137 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.dto.CheckoutTicket;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Accepted checkout tickets in {@code checkout_tickets}. A ticket that is not done is
+ * owned by the instance working on it until {@code claimed_until}; the owner keeps the
+ * claim alive, and once it lapses any instance can claim the ticket and finish it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CheckoutTicketRepository {
+    
+    private static final String OPEN = "('QUEUED', 'PRICING', 'PERSISTING')";
+    
+    private static final RowMapper<CheckoutTicket> TICKET_MAPPER = (rs, rowNum) -> CheckoutTicket.builder()
+            .ticketId(rs.getString("id"))
+            .tenantId(rs.getLong("tenant_id"))
+            .status(CheckoutTicket.Status.valueOf(rs.getString("status")))
+            .orderId(rs.getObject("order_id", Long.class))
+            .orderNumber(rs.getString("order_number"))
+            .message(rs.getString("message"))
+            .acceptedAt(rs.getTimestamp("accepted_at").toLocalDateTime())
+            .completedAt(rs.getTimestamp("completed_at") != null ? rs.getTimestamp("completed_at").toLocalDateTime() : null)
+            .build();
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public void insert(String id, Long tenantId, Long userId, String request, String owner,
+                       LocalDateTime acceptedAt, LocalDateTime claimedUntil) {
+        jdbcTemplate.update("INSERT INTO checkout_tickets (id, tenant_id, user_id, request, status, owner, claimed_until, " +
+                        "accepted_at) VALUES (:id, :tenantId, :userId, :request, 'QUEUED', :owner, :claimedUntil, :acceptedAt)",
+                new MapSqlParameterSource("id", id)
+                        .addValue("tenantId", tenantId)
+                        .addValue("userId", userId)
+                        .addValue("request", request)
+                        .addValue("owner", owner)
+                        .addValue("claimedUntil", Timestamp.valueOf(claimedUntil))
+                        .addValue("acceptedAt", Timestamp.valueOf(acceptedAt)));
+    }
+    
+    public Optional<CheckoutTicket> findById(String id) {
+        return jdbcTemplate.query("SELECT id, tenant_id, status, order_id, order_number, message, accepted_at, completed_at " +
+                        "FROM checkout_tickets WHERE id = :id",
+                new MapSqlParameterSource("id", id), TICKET_MAPPER).stream().findFirst();
+    }
+    
+    public void updateStatus(Collection<String> ids, CheckoutTicket.Status status, String owner) {
+        jdbcTemplate.update("UPDATE checkout_tickets SET status = :status WHERE id IN (:ids) AND owner = :owner",
+                new MapSqlParameterSource("ids", ids)
+                        .addValue("status", status.name())
+                        .addValue("owner", owner));
+    }
+    
+    /**
+     * Marks tickets finished if this instance still owns them. Returns one update count
+     * per ticket; 0 means another instance has taken the ticket over.
+     */
+    public int[] finish(List<CheckoutTicket> tickets, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        SqlParameterSource[] rows = tickets.stream()
+                .map(ticket -> new MapSqlParameterSource("id", ticket.getTicketId())
+                        .addValue("status", ticket.getStatus().name())
+                        .addValue("orderId", ticket.getOrderId())
+                        .addValue("orderNumber", ticket.getOrderNumber())
+                        .addValue("message", truncate(ticket.getMessage()))
+                        .addValue("completedAt", Timestamp.valueOf(now))
+                        .addValue("owner", owner))
+                .toArray(SqlParameterSource[]::new);
+        return jdbcTemplate.batchUpdate("UPDATE checkout_tickets SET status = :status, order_id = :orderId, " +
+                "order_number = :orderNumber, message = :message, completed_at = :completedAt, owner = NULL, " +
+                "claimed_until = NULL WHERE id = :id AND owner = :owner AND status IN " + OPEN, rows);
+    }
+    
+    public void renewClaims(String owner, LocalDateTime claimedUntil) {
+        jdbcTemplate.update("UPDATE checkout_tickets SET claimed_until = :claimedUntil WHERE owner = :owner AND status IN " + OPEN,
+                new MapSqlParameterSource("owner", owner).addValue("claimedUntil", Timestamp.valueOf(claimedUntil)));
+    }
+    
+    /**
+     * Takes over up to {@code limit} open tickets whose claim has lapsed, oldest first, and
+     * returns them.
+     */
+    public List<OpenTicket> claimLapsed(String owner, LocalDateTime claimedUntil, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("owner", owner)
+                .addValue("claimedUntil", Timestamp.valueOf(claimedUntil))
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+                .addValue("limit", limit);
+        int claimed = jdbcTemplate.update("UPDATE checkout_tickets SET owner = :owner, claimed_until = :claimedUntil " +
+                "WHERE status IN " + OPEN + " AND (claimed_until IS NULL OR claimed_until < :now) " +
+                "ORDER BY accepted_at LIMIT :limit", params);
+        if (claimed == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT id, tenant_id, user_id, request, accepted_at FROM checkout_tickets " +
+                        "WHERE owner = :owner AND claimed_until = :claimedUntil AND status IN " + OPEN,
+                params,
+                (rs, rowNum) -> new OpenTicket(rs.getString("id"), rs.getLong("tenant_id"), rs.getLong("user_id"),
+                        rs.getString("request"), rs.getTimestamp("accepted_at").toLocalDateTime()));
+    }
+    
+    /**
+     * Gives up the claim on open tickets so another instance can pick them up at once.
+     */
+    public int releaseClaims(String owner, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("UPDATE checkout_tickets SET owner = NULL, claimed_until = NULL " +
+                        "WHERE id IN (:ids) AND owner = :owner AND status IN " + OPEN,
+                new MapSqlParameterSource("ids", ids).addValue("owner", owner));
+    }
+    
+    public int deleteFinishedBefore(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update("DELETE FROM checkout_tickets WHERE completed_at < :cutoff LIMIT :limit",
+                new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)).addValue("limit", limit));
+    }
+    
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+    
+    public record OpenTicket(String id, Long tenantId, Long userId, String request, LocalDateTime acceptedAt) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cold storage for orders in a terminal state. Archived orders live in
+ * {@code orders_archive} and {@code order_items_archive}, which mirror the hot tables,
+ * and are read back as detached {@link Order} objects.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+    
+    private static final String ORDER_COLUMNS = "id, order_number, user_id, tenant_id, status, total_amount, " +
+            "shipping_address, billing_address, payment_status, payment_method, notes, created_at, updated_at, version";
+    
+    private static final String ITEM_COLUMNS = "id, order_id, product_id, product_name, quantity, unit_price, total_price, created_at";
+    
+    private static final RowMapper<Order> ORDER_MAPPER = (rs, rowNum) -> Order.builder()
+            .id(rs.getLong("id"))
+            .orderNumber(rs.getString("order_number"))
+            .userId(rs.getLong("user_id"))
+            .tenantId(rs.getLong("tenant_id"))
+            .status(Order.Status.valueOf(rs.getString("status")))
+            .totalAmount(rs.getBigDecimal("total_amount"))
+            .shippingAddress(rs.getString("shipping_address"))
+            .billingAddress(rs.getString("billing_address"))
+            .paymentStatus(Order.PaymentStatus.valueOf(rs.getString("payment_status")))
+            .paymentMethod(rs.getString("payment_method"))
+            .notes(rs.getString("notes"))
+            .createdAt(toLocalDateTime(rs, "created_at"))
+            .updatedAt(toLocalDateTime(rs, "updated_at"))
+            .version(rs.getLong("version"))
+            .orderItems(new ArrayList<>())
+            .build();
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public Optional<Order> findById(Long id) {
+        return findOne("SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE id = :value", id);
+    }
+    
+    public Optional<Order> findByOrderNumber(String orderNumber) {
+        return findOne("SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE order_number = :value", orderNumber);
+    }
+    
+    public List<Order> findByUserId(Long userId) {
+        return withItems(jdbcTemplate.query("SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE user_id = :userId",
+                new MapSqlParameterSource("userId", userId), ORDER_MAPPER));
+    }
+    
+    public List<Order> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, int limit) {
+        return withItems(jdbcTemplate.query("SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE user_id = :userId " +
+                        "ORDER BY created_at DESC, id DESC LIMIT :limit",
+                new MapSqlParameterSource("userId", userId).addValue("limit", limit), ORDER_MAPPER));
+    }
+    
+    public List<Order> findByUserIdAfter(Long userId, LocalDateTime createdAt, Long id, int limit) {
+        return withItems(jdbcTemplate.query("SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE user_id = :userId " +
+                        "AND (created_at < :createdAt OR (created_at = :createdAt AND id < :id)) " +
+                        "ORDER BY created_at DESC, id DESC LIMIT :limit",
+                new MapSqlParameterSource("userId", userId)
+                        .addValue("createdAt", Timestamp.valueOf(createdAt))
+                        .addValue("id", id)
+                        .addValue("limit", limit),
+                ORDER_MAPPER));
+    }
+    
+    /**
+     * Ids of up to {@code limit} orders in one of the given statuses last updated before
+     * {@code before}, locked for the caller's transaction. Rows locked by another
+     * archiver are skipped rather than waited for.
+     */
+    public List<Long> lockArchivable(Collection<Order.Status> statuses, LocalDateTime before, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM orders WHERE status IN (:statuses) AND updated_at < :before " +
+                        "ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+                new MapSqlParameterSource("statuses", statuses.stream().map(Enum::name).toList())
+                        .addValue("before", Timestamp.valueOf(before))
+                        .addValue("limit", limit),
+                Long.class);
+    }
+    
+    /**
+     * Copies the given orders and their items to the archive tables and deletes them
+     * from the hot tables. Must run in the transaction that locked them.
+     */
+    public void moveToArchive(List<Long> orderIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", orderIds);
+        jdbcTemplate.update("INSERT INTO orders_archive (" + ORDER_COLUMNS + ") " +
+                "SELECT " + ORDER_COLUMNS + " FROM orders WHERE id IN (:ids)", ids);
+        jdbcTemplate.update("INSERT INTO order_items_archive (" + ITEM_COLUMNS + ") " +
+                "SELECT " + ITEM_COLUMNS + " FROM order_items WHERE order_id IN (:ids)", ids);
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (:ids)", ids);
+        jdbcTemplate.update("DELETE FROM orders WHERE id IN (:ids)", ids);
+    }
+    
+    private Optional<Order> findOne(String sql, Object value) {
+        List<Order> orders = jdbcTemplate.query(sql, new MapSqlParameterSource("value", value), ORDER_MAPPER);
+        return withItems(orders).stream().findFirst();
+    }
+    
+    private List<Order> withItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<Long, Order> byId = new HashMap<>();
+        orders.forEach(order -> byId.put(order.getId(), order));
+        jdbcTemplate.query("SELECT " + ITEM_COLUMNS + " FROM order_items_archive WHERE order_id IN (:ids) ORDER BY id",
+                new MapSqlParameterSource("ids", byId.keySet()),
+                rs -> {
+                    Order order = byId.get(rs.getLong("order_id"));
+                    order.getOrderItems().add(OrderItem.builder()
+                            .id(rs.getLong("id"))
+                            .order(order)
+                            .productId(rs.getString("product_id"))
+                            .productName(rs.getString("product_name"))
+                            .quantity(rs.getInt("quantity"))
+                            .unitPrice(rs.getBigDecimal("unit_price"))
+                            .totalPrice(rs.getBigDecimal("total_price"))
+                            .createdAt(toLocalDateTime(rs, "created_at"))
+                            .build());
+                });
+        return orders;
+    }
+    
+    private static LocalDateTime toLocalDateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,133 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.dto.OrderEvent;
+import com.ecommerce.order.model.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only lifecycle log of orders in {@code order_events}, with the latest snapshot
+ * of each order's state in {@code order_snapshots}. Events are never updated or deleted,
+ * and their ids give the order in which they were recorded.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderEventRepository {
+    
+    private static final String EVENT_COLUMNS = "id, order_id, event_type, status, payment_status, payload, occurred_at";
+    
+    private static final RowMapper<StoredEvent> EVENT_MAPPER = (rs, rowNum) -> new StoredEvent(
+            OrderEvent.builder()
+                    .id(rs.getLong("id"))
+                    .orderId(rs.getLong("order_id"))
+                    .type(OrderEvent.Type.valueOf(rs.getString("event_type")))
+                    .status(rs.getString("status") != null ? Order.Status.valueOf(rs.getString("status")) : null)
+                    .paymentStatus(rs.getString("payment_status") != null
+                            ? Order.PaymentStatus.valueOf(rs.getString("payment_status")) : null)
+                    .occurredAt(rs.getTimestamp("occurred_at").toLocalDateTime())
+                    .build(),
+            rs.getString("payload"));
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public void appendAll(List<NewEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] rows = events.stream()
+                .map(event -> new MapSqlParameterSource()
+                        .addValue("orderId", event.orderId())
+                        .addValue("tenantId", event.tenantId())
+                        .addValue("type", event.type().name())
+                        .addValue("status", event.status() != null ? event.status().name() : null)
+                        .addValue("paymentStatus", event.paymentStatus() != null ? event.paymentStatus().name() : null)
+                        .addValue("payload", event.payload())
+                        .addValue("occurredAt", Timestamp.valueOf(event.occurredAt())))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("INSERT INTO order_events (order_id, tenant_id, event_type, status, payment_status, " +
+                "payload, occurred_at) VALUES (:orderId, :tenantId, :type, :status, :paymentStatus, :payload, :occurredAt)", rows);
+    }
+    
+    /**
+     * Timeline of one order, without payloads, oldest first.
+     */
+    public List<OrderEvent> findTimeline(Long orderId, Long tenantId) {
+        return jdbcTemplate.query("SELECT id, order_id, event_type, status, payment_status, NULL AS payload, occurred_at " +
+                        "FROM order_events WHERE order_id = :orderId AND tenant_id = :tenantId ORDER BY id",
+                new MapSqlParameterSource("orderId", orderId).addValue("tenantId", tenantId),
+                EVENT_MAPPER).stream().map(StoredEvent::event).toList();
+    }
+    
+    /**
+     * Events of one order recorded after the given event id, oldest first.
+     */
+    public List<StoredEvent> findAfter(Long orderId, long afterId) {
+        return jdbcTemplate.query("SELECT " + EVENT_COLUMNS + " FROM order_events WHERE order_id = :orderId AND id > :afterId " +
+                        "ORDER BY id",
+                new MapSqlParameterSource("orderId", orderId).addValue("afterId", afterId), EVENT_MAPPER);
+    }
+    
+    public Optional<Snapshot> findSnapshot(Long orderId) {
+        return jdbcTemplate.query("SELECT order_id, last_event_id, state FROM order_snapshots WHERE order_id = :orderId",
+                new MapSqlParameterSource("orderId", orderId),
+                (rs, rowNum) -> new Snapshot(rs.getLong("order_id"), rs.getLong("last_event_id"), rs.getString("state")))
+                .stream().findFirst();
+    }
+    
+    /**
+     * Stores a snapshot unless a newer one is already there.
+     */
+    public void saveSnapshot(Snapshot snapshot) {
+        // last_event_id is assigned last, so the conditions above it still see the old value
+        jdbcTemplate.update("INSERT INTO order_snapshots (order_id, last_event_id, state, created_at) " +
+                        "VALUES (:orderId, :lastEventId, :state, NOW(6)) ON DUPLICATE KEY UPDATE " +
+                        "state = IF(VALUES(last_event_id) > last_event_id, VALUES(state), state), " +
+                        "created_at = IF(VALUES(last_event_id) > last_event_id, VALUES(created_at), created_at), " +
+                        "last_event_id = GREATEST(last_event_id, VALUES(last_event_id))",
+                new MapSqlParameterSource("orderId", snapshot.orderId())
+                        .addValue("lastEventId", snapshot.lastEventId())
+                        .addValue("state", snapshot.state()));
+    }
+    
+    public long findMaxEventId() {
+        Long max = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM order_events", Long.class);
+        return max != null ? max : 0;
+    }
+    
+    /**
+     * Orders with events recorded after {@code afterId} that have at least
+     * {@code minTail} events past their snapshot.
+     */
+    public List<Long> findOrdersToSnapshot(long afterId, long upToId, int minTail, int limit) {
+        return jdbcTemplate.queryForList("SELECT e.order_id FROM order_events e " +
+                        "LEFT JOIN order_snapshots s ON s.order_id = e.order_id " +
+                        "WHERE e.order_id IN (SELECT order_id FROM (SELECT DISTINCT order_id FROM order_events " +
+                        "WHERE id > :afterId AND id <= :upToId) touched) " +
+                        "AND e.id > COALESCE(s.last_event_id, 0) " +
+                        "GROUP BY e.order_id HAVING COUNT(*) >= :minTail LIMIT :limit",
+                new MapSqlParameterSource("afterId", afterId)
+                        .addValue("upToId", upToId)
+                        .addValue("minTail", minTail)
+                        .addValue("limit", limit),
+                Long.class);
+    }
+    
+    public record NewEvent(Long orderId, Long tenantId, OrderEvent.Type type, Order.Status status,
+                           Order.PaymentStatus paymentStatus, String payload, LocalDateTime occurredAt) {
+    }
+    
+    public record StoredEvent(OrderEvent event, String payload) {
+    }
+    
+    public record Snapshot(Long orderId, long lastEventId, String state) {
+    }
+}
@@ -1,36 +1,160 @@
 package com.ecommerce.order.repository;
 
+import com.ecommerce.order.dto.OrderSummary;
 import com.ecommerce.order.model.Order;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
+    String SUMMARY_SELECT = "SELECT new com.ecommerce.order.dto.OrderSummary(o.id, o.orderNumber, o.userId, o.tenantId, " +
+            "o.status, o.totalAmount, o.paymentStatus, o.paymentMethod, SIZE(o.orderItems), o.createdAt, o.updatedAt) " +
+            "FROM Order o ";
+    
+    String SUMMARY_ORDER = " ORDER BY o.createdAt DESC, o.id DESC";
+    
+    /**
+     * Makes Connector/J stream rows one at a time instead of buffering the whole result.
+     * Callers of the stream methods must hold a transaction and must not run other
+     * statements until the stream is closed.
+     */
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+    
     Optional<Order> findByOrderNumber(String orderNumber);
     
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsById(Long id);
+    
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsByOrderNumber(String orderNumber);
+    
+    /**
+     * Loads the items of an already fetched page of orders in one query. Paging and a
+     * collection fetch join cannot be combined in SQL, so pages are read in two steps.
+     */
+    @EntityGraph(attributePaths = "orderItems")
+    List<Order> findWithItemsByIdIn(Collection<Long> ids);
+    
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByUserId(Long userId);
     
-    Page<Order> findByUserId(Long userId, Pageable pageable);
+    Slice<Order> findByUserId(Long userId, Pageable pageable);
     
+    List<Order> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
+    
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByUserIdAfter(@Param("userId") Long userId,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+    
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByTenantId(Long tenantId);
     
-    Page<Order> findByTenantId(Long tenantId, Pageable pageable);
+    Slice<Order> findByTenantId(Long tenantId, Pageable pageable);
+    
+    List<Order> findByTenantIdOrderByCreatedAtDescIdDesc(Long tenantId, Pageable pageable);
     
+    @Query("SELECT o FROM Order o WHERE o.tenantId = :tenantId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByTenantIdAfter(@Param("tenantId") Long tenantId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+    
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByUserIdAndTenantId(Long userId, Long tenantId);
     
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByStatus(Order.Status status);
     
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByTenantIdAndStatus(Long tenantId, Order.Status status);
     
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByPaymentStatus(Order.PaymentStatus paymentStatus);
     
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByTenantIdAndPaymentStatus(Long tenantId, Order.PaymentStatus paymentStatus);
     
     boolean existsByOrderNumber(String orderNumber);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Order> streamByStatusOrderById(Order.Status status);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Order> streamByPaymentStatusOrderById(Order.PaymentStatus paymentStatus);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Order> streamByTenantIdAndStatusOrderById(Long tenantId, Order.Status status);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Order> streamByTenantIdAndPaymentStatusOrderById(Long tenantId, Order.PaymentStatus paymentStatus);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.userId = :userId" + SUMMARY_ORDER)
+    Slice<OrderSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.tenantId = :tenantId" + SUMMARY_ORDER)
+    Slice<OrderSummary> findSummariesByTenantId(@Param("tenantId") Long tenantId, Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.userId = :userId AND o.tenantId = :tenantId" + SUMMARY_ORDER)
+    List<OrderSummary> findSummariesByUserIdAndTenantId(@Param("userId") Long userId, @Param("tenantId") Long tenantId);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.tenantId = :tenantId AND o.status = :status" + SUMMARY_ORDER)
+    List<OrderSummary> findSummariesByTenantIdAndStatus(@Param("tenantId") Long tenantId, @Param("status") Order.Status status);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.tenantId = :tenantId AND o.paymentStatus = :paymentStatus" + SUMMARY_ORDER)
+    List<OrderSummary> findSummariesByTenantIdAndPaymentStatus(@Param("tenantId") Long tenantId,
+                                                               @Param("paymentStatus") Order.PaymentStatus paymentStatus);
+    
+    List<Order> findByStatusAndUpdatedAtBeforeOrderByUpdatedAt(Order.Status status, LocalDateTime before, Pageable pageable);
+    
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.updatedAt = :updatedAt WHERE o.id = :id AND o.status = :status AND o.updatedAt < :before")
+    int touchIfUpdatedBefore(@Param("id") Long id,
+                             @Param("status") Order.Status status,
+                             @Param("before") LocalDateTime before,
+                             @Param("updatedAt") LocalDateTime updatedAt);
+    
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :updatedAt, o.version = o.version + 1 " +
+            "WHERE o.id = :id AND o.status = :from")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("from") Order.Status from,
+                         @Param("to") Order.Status to,
+                         @Param("updatedAt") LocalDateTime updatedAt);
 } 
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    List<OutboxEvent> findByOrderByIdAsc(Pageable pageable);
+    
+    Optional<OutboxEvent> findFirstByOrderByIdAsc();
+}
@@ -0,0 +1,605 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CheckoutTicket;
+import com.ecommerce.order.dto.OrderRequest;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.Product;
+import com.ecommerce.order.repository.CheckoutTicketRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous checkout. Accepted requests get a ticket and wait in a bounded queue; a
+ * pricing stage takes micro-batches from it and prices them with one product-service
+ * call per batch, and a persist stage saves each micro-batch of priced orders with their
+ * events and reservation commands in one transaction. The stages are connected by a
+ * bounded queue, so a slow database holds back pricing instead of piling up priced
+ * orders in memory, and a full intake queue rejects new requests instead of dropping
+ * accepted ones. Completion is published on {@code checkout-events} and can be polled.
+ * <p>
+ * A ticket is written to {@code checkout_tickets} before the request is acknowledged, and
+ * is owned by the accepting instance for {@code app.checkout.claim-lease}, renewed while
+ * it works. Tickets whose claim lapses, because their instance crashed or shut down
+ * before finishing them, are claimed and finished by another instance. An order is saved
+ * in the same transaction that completes its ticket, and only while the ticket is still
+ * owned, so a ticket never creates two orders. Polls for tickets owned elsewhere read the
+ * table.
+ */
+@Component
+@Slf4j
+public class CheckoutPipeline {
+    
+    public static final String EVENTS_TOPIC = "checkout-events";
+    
+    private static final String ORDER_CREATED = "Order created";
+    private static final long REMOTE_POLL_MILLIS = 200;
+    private static final int MAX_RECOVERED_PER_RUN = 500;
+    
+    private final OrderService orderService;
+    private final OutboxService outboxService;
+    private final CheckoutTicketRepository ticketRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final int pricingWorkers;
+    private final int persistWorkers;
+    private final int pricingAttempts;
+    private final Duration ticketTtl;
+    private final Duration shutdownGrace;
+    private final Duration claimLease;
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    private final BlockingQueue<Ticket> intake;
+    private final BlockingQueue<Ticket> priced;
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkout-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+    
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder pricingBatches = new LongAdder();
+    private final LongAdder persistBatches = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder takenOver = new LongAdder();
+    
+    public CheckoutPipeline(OrderService orderService,
+                            OutboxService outboxService,
+                            CheckoutTicketRepository ticketRepository,
+                            ObjectMapper objectMapper,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${app.checkout.queue-capacity:20000}") int queueCapacity,
+                            @Value("${app.checkout.persist-queue-capacity:1000}") int persistQueueCapacity,
+                            @Value("${app.checkout.batch-size:50}") int batchSize,
+                            @Value("${app.checkout.linger-ms:5}") long lingerMillis,
+                            @Value("${app.checkout.pricing-workers:4}") int pricingWorkers,
+                            @Value("${app.checkout.persist-workers:2}") int persistWorkers,
+                            @Value("${app.checkout.pricing-attempts:3}") int pricingAttempts,
+                            @Value("${app.checkout.ticket-ttl:15m}") Duration ticketTtl,
+                            @Value("${app.checkout.shutdown-grace:30s}") Duration shutdownGrace,
+                            @Value("${app.checkout.claim-lease:30s}") Duration claimLease) {
+        this.orderService = orderService;
+        this.outboxService = outboxService;
+        this.ticketRepository = ticketRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.pricingWorkers = pricingWorkers;
+        this.persistWorkers = persistWorkers;
+        this.pricingAttempts = pricingAttempts;
+        this.ticketTtl = ticketTtl;
+        this.shutdownGrace = shutdownGrace;
+        this.claimLease = claimLease;
+        this.intake = new ArrayBlockingQueue<>(queueCapacity);
+        this.priced = new ArrayBlockingQueue<>(persistQueueCapacity);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < pricingWorkers; i++) {
+            startWorker("checkout-price-" + i, this::runPricing);
+        }
+        for (int i = 0; i < persistWorkers; i++) {
+            startWorker("checkout-persist-" + i, this::runPersist);
+        }
+    }
+    
+    /**
+     * Lets the workers finish what was accepted, up to the shutdown grace period, then
+     * hands whatever is left to the other instances.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        accepting = false;
+        long deadline = System.nanoTime() + shutdownGrace.toNanos();
+        while (!tickets.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        running = false;
+        workers.forEach(Thread::interrupt);
+        poller.shutdownNow();
+        int released = ticketRepository.releaseClaims(instanceId, List.copyOf(tickets.keySet()));
+        if (released > 0) {
+            log.info("Released {} unfinished checkout tickets to other instances", released);
+        }
+    }
+    
+    public CheckoutTicket submit(OrderRequest request, Long userId, Long tenantId) {
+        if (!accepting || intake.remainingCapacity() == 0) {
+            rejected.increment();
+            throw new CheckoutRejectedException("Checkout is busy, please retry shortly");
+        }
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), request, userId, tenantId, LocalDateTime.now());
+        // Durable before it is acknowledged, so an accepted request survives this instance
+        ticketRepository.insert(ticket.id, tenantId, userId, serialize(request), instanceId,
+                ticket.acceptedAt, LocalDateTime.now().plus(claimLease));
+        accepted.increment();
+        tickets.put(ticket.id, ticket);
+        if (!intake.offer(ticket)) {
+            // Filled up since the check; leave it to whichever instance claims it first
+            tickets.remove(ticket.id);
+            ticketRepository.releaseClaims(instanceId, List.of(ticket.id));
+        }
+        return ticket.view();
+    }
+    
+    public Optional<CheckoutTicket> getTicket(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        return ticket != null ? Optional.of(ticket.view()) : ticketRepository.findById(ticketId);
+    }
+    
+    /**
+     * Completes when the ticket is done or the wait is over, whichever is first, with the
+     * ticket as it is at that moment. Tickets worked on by another instance are polled
+     * from the table.
+     */
+    public Optional<CompletableFuture<CheckoutTicket>> awaitTicket(String ticketId, Duration wait) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket != null) {
+            return Optional.of(ticket.done.copy()
+                    .orTimeout(wait.toMillis(), TimeUnit.MILLISECONDS)
+                    .exceptionally(timeout -> getTicket(ticketId).orElse(ticket.view())));
+        }
+        Optional<CheckoutTicket> current = ticketRepository.findById(ticketId);
+        if (current.isEmpty() || current.get().getStatus().isDone() || wait.isZero()) {
+            return current.map(CompletableFuture::completedFuture);
+        }
+        CompletableFuture<CheckoutTicket> result = new CompletableFuture<>();
+        long deadline = System.nanoTime() + wait.toNanos();
+        ScheduledFuture<?> polling = poller.scheduleWithFixedDelay(() -> {
+            try {
+                CheckoutTicket latest = ticketRepository.findById(ticketId).orElse(current.get());
+                if (latest.getStatus().isDone() || System.nanoTime() >= deadline) {
+                    result.complete(latest);
+                }
+            } catch (Exception e) {
+                result.complete(current.get());
+            }
+        }, REMOTE_POLL_MILLIS, REMOTE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        result.whenComplete((latest, error) -> polling.cancel(false));
+        return Optional.of(result);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("accepting", accepting);
+        stats.put("queued", intake.size());
+        stats.put("queueRemaining", intake.remainingCapacity());
+        stats.put("awaitingPersist", priced.size());
+        stats.put("inFlight", tickets.size());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("pricingBatches", pricingBatches.sum());
+        stats.put("persistBatches", persistBatches.sum());
+        stats.put("recovered", recovered.sum());
+        stats.put("takenOver", takenOver.sum());
+        return stats;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.checkout.cleanup-interval-ms:60000}")
+    public void evictFinishedTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ticketTtl);
+        while (ticketRepository.deleteFinishedBefore(cutoff, 1000) == 1000) {
+            // Keep deleting in small chunks
+        }
+    }
+    
+    /**
+     * Keeps this instance's claims alive and picks up tickets whose owner has gone away,
+     * as far as the intake queue has room for them.
+     */
+    @Scheduled(fixedDelayString = "${app.checkout.claim-interval-ms:5000}")
+    public void maintainClaims() {
+        // Claimed rows are read back by this exact value, so keep it at the column's precision
+        LocalDateTime claimedUntil = LocalDateTime.now().plus(claimLease).truncatedTo(ChronoUnit.MICROS);
+        if (accepting) {
+            recoverLapsed(claimedUntil);
+        }
+        ticketRepository.renewClaims(instanceId, claimedUntil);
+    }
+    
+    private void recoverLapsed(LocalDateTime claimedUntil) {
+        int room = Math.min(intake.remainingCapacity() / 2, MAX_RECOVERED_PER_RUN);
+        if (room == 0) {
+            return;
+        }
+        List<String> unplaced = new ArrayList<>();
+        for (CheckoutTicketRepository.OpenTicket open : ticketRepository.claimLapsed(instanceId, claimedUntil, room)) {
+            if (tickets.containsKey(open.id())) {
+                continue;
+            }
+            Ticket ticket;
+            try {
+                ticket = new Ticket(open.id(), objectMapper.readValue(open.request(), OrderRequest.class),
+                        open.userId(), open.tenantId(), open.acceptedAt());
+            } catch (Exception e) {
+                log.error("Failing unreadable checkout ticket {}", open.id(), e);
+                Ticket unreadable = new Ticket(open.id(), null, open.userId(), open.tenantId(), open.acceptedAt());
+                fail(unreadable, "Checkout request could not be read");
+                finishInStore(List.of(unreadable));
+                continue;
+            }
+            tickets.put(ticket.id, ticket);
+            if (!intake.offer(ticket)) {
+                tickets.remove(ticket.id);
+                unplaced.add(ticket.id);
+                continue;
+            }
+            recovered.increment();
+        }
+        ticketRepository.releaseClaims(instanceId, unplaced);
+    }
+    
+    private void runPricing() {
+        while (running) {
+            List<Ticket> batch = nextBatch(intake);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            pricingBatches.increment();
+            batch.forEach(ticket -> ticket.status = CheckoutTicket.Status.PRICING);
+            recordStatus(batch, CheckoutTicket.Status.PRICING);
+            
+            Set<String> productIds = new LinkedHashSet<>();
+            batch.forEach(ticket -> productIds.addAll(orderService.productIdsOf(ticket.request)));
+            Map<String, Product> products = fetchProducts(List.copyOf(productIds));
+            
+            List<Ticket> finished = new ArrayList<>();
+            List<Ticket> persisting = new ArrayList<>();
+            for (Ticket ticket : batch) {
+                if (products == null) {
+                    fail(ticket, "Product service is unavailable");
+                    finished.add(ticket);
+                    continue;
+                }
+                try {
+                    ticket.order = orderService.priceOrder(ticket.request, products, ticket.userId, ticket.tenantId);
+                    ticket.status = CheckoutTicket.Status.PERSISTING;
+                    persisting.add(ticket);
+                    // Blocks while the persist stage is behind
+                    priced.put(ticket);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(ticket, "Checkout was interrupted");
+                    finished.add(ticket);
+                } catch (Exception e) {
+                    fail(ticket, e.getMessage());
+                    finished.add(ticket);
+                }
+            }
+            recordStatus(persisting, CheckoutTicket.Status.PERSISTING);
+            notifyFinished(finishInStore(finished));
+        }
+    }
+    
+    private Map<String, Product> fetchProducts(List<String> productIds) {
+        for (int attempt = 1; attempt <= pricingAttempts; attempt++) {
+            try {
+                return orderService.getProducts(productIds);
+            } catch (Exception e) {
+                log.warn("Checkout pricing lookup failed (attempt {} of {})", attempt, pricingAttempts, e);
+                try {
+                    Thread.sleep(100L << attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private void runPersist() {
+        while (running) {
+            List<Ticket> batch = nextBatch(priced);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            persistBatches.increment();
+            List<Ticket> finished = new ArrayList<>(batch.size());
+            List<Ticket> failures = new ArrayList<>();
+            try {
+                saveAndComplete(batch);
+                finished.addAll(batch);
+            } catch (Exception batchFailure) {
+                // Find the offending order by saving the rest one at a time
+                log.warn("Checkout batch of {} failed, retrying orders individually", batch.size(), batchFailure);
+                for (Ticket ticket : batch) {
+                    resetIds(ticket.order);
+                    try {
+                        saveAndComplete(List.of(ticket));
+                        finished.add(ticket);
+                    } catch (ClaimLostException e) {
+                        handOver(ticket);
+                    } catch (Exception e) {
+                        fail(ticket, e.getMessage());
+                        failures.add(ticket);
+                    }
+                }
+            }
+            finished.addAll(finishInStore(failures));
+            notifyFinished(finished);
+        }
+    }
+    
+    /**
+     * Saves the orders and completes their tickets in one transaction, which rolls back if
+     * any ticket has been taken over by another instance meanwhile.
+     */
+    private void saveAndComplete(List<Ticket> batch) {
+        List<Order> saved = transactionTemplate.execute(status -> {
+            List<Order> orders = orderService.saveNewOrders(batch.stream().map(ticket -> ticket.order).toList());
+            List<CheckoutTicket> views = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                CheckoutTicket view = batch.get(i).view();
+                view.setStatus(CheckoutTicket.Status.COMPLETED);
+                view.setOrderId(orders.get(i).getId());
+                view.setOrderNumber(orders.get(i).getOrderNumber());
+                view.setMessage(ORDER_CREATED);
+                views.add(view);
+            }
+            for (int count : ticketRepository.finish(views, instanceId)) {
+                if (count == 0) {
+                    throw new ClaimLostException();
+                }
+            }
+            return orders;
+        });
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), saved.get(i));
+        }
+    }
+    
+    /**
+     * Records failed tickets and returns the ones that were still ours; the rest are
+     * handed over to the instance that claimed them.
+     */
+    private List<Ticket> finishInStore(List<Ticket> failures) {
+        if (failures.isEmpty()) {
+            return failures;
+        }
+        List<Ticket> recorded = new ArrayList<>(failures.size());
+        try {
+            int[] counts = ticketRepository.finish(failures.stream().map(Ticket::view).toList(), instanceId);
+            for (int i = 0; i < failures.size(); i++) {
+                Ticket ticket = failures.get(i);
+                if (counts[i] == 0) {
+                    handOver(ticket);
+                } else {
+                    ticket.done.complete(ticket.view());
+                    tickets.remove(ticket.id);
+                    failed.increment();
+                    recorded.add(ticket);
+                }
+            }
+        } catch (Exception e) {
+            // Still open in the table; the claim lapses and another attempt is made
+            log.error("Failed to record {} failed checkout tickets", failures.size(), e);
+            failures.forEach(this::handOver);
+        }
+        return recorded;
+    }
+    
+    private void recordStatus(List<Ticket> batch, CheckoutTicket.Status status) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            ticketRepository.updateStatus(batch.stream().map(ticket -> ticket.id).toList(), status, instanceId);
+        } catch (Exception e) {
+            // Progress only; the ticket is finished either way
+            log.warn("Failed to record {} checkout tickets as {}", batch.size(), status, e);
+        }
+    }
+    
+    private void handOver(Ticket ticket) {
+        // Whoever owns the ticket now reports its outcome; local waiters see the stored state
+        tickets.remove(ticket.id);
+        takenOver.increment();
+        try {
+            ticketRepository.findById(ticket.id).ifPresent(ticket.done::complete);
+        } catch (Exception e) {
+            // Waiters time out and read the table themselves
+            log.debug("Could not read checkout ticket {}", ticket.id, e);
+        }
+    }
+    
+    private List<Ticket> nextBatch(BlockingQueue<Ticket> queue) {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        try {
+            Ticket first = queue.poll(500, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return batch;
+            }
+            batch.add(first);
+            // Give a burst a moment to fill the batch
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            while (batch.size() < batchSize) {
+                long remaining = deadline - System.nanoTime();
+                Ticket next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return batch;
+    }
+    
+    private void complete(Ticket ticket, Order order) {
+        ticket.orderId = order.getId();
+        ticket.orderNumber = order.getOrderNumber();
+        ticket.finish(CheckoutTicket.Status.COMPLETED, ORDER_CREATED);
+        tickets.remove(ticket.id);
+        completed.increment();
+    }
+    
+    private void fail(Ticket ticket, String message) {
+        // Reported by finishInStore once the failure is recorded
+        ticket.settle(CheckoutTicket.Status.FAILED, message);
+    }
+    
+    private String serialize(OrderRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to store checkout request", e);
+        }
+    }
+    
+    private void notifyFinished(List<Ticket> finished) {
+        if (finished.isEmpty()) {
+            return;
+        }
+        Map<String, Object> events = new LinkedHashMap<>();
+        finished.forEach(ticket -> events.put(ticket.id, ticket.view()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxService.appendAll(EVENTS_TOPIC, null, events));
+        } catch (Exception e) {
+            log.error("Failed to publish {} checkout notifications", finished.size(), e);
+        }
+    }
+    
+    private static void resetIds(Order order) {
+        // Ids assigned by the rolled back batch must not be reused
+        order.setId(null);
+        order.getOrderItems().forEach(item -> item.setId(null));
+    }
+    
+    private void startWorker(String name, Runnable loop) {
+        Thread thread = new Thread(() -> {
+            while (running) {
+                try {
+                    loop.run();
+                } catch (Exception e) {
+                    log.error("Checkout worker {} failed, restarting", name, e);
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        workers.add(thread);
+    }
+    
+    private static final class Ticket {
+        
+        private final String id;
+        private final OrderRequest request;
+        private final Long userId;
+        private final Long tenantId;
+        private final LocalDateTime acceptedAt;
+        private final CompletableFuture<CheckoutTicket> done = new CompletableFuture<>();
+        
+        private volatile CheckoutTicket.Status status = CheckoutTicket.Status.QUEUED;
+        private volatile Order order;
+        private volatile Long orderId;
+        private volatile String orderNumber;
+        private volatile String message;
+        private volatile LocalDateTime completedAt;
+        
+        Ticket(String id, OrderRequest request, Long userId, Long tenantId, LocalDateTime acceptedAt) {
+            this.id = id;
+            this.request = request;
+            this.userId = userId;
+            this.tenantId = tenantId;
+            this.acceptedAt = acceptedAt;
+        }
+        
+        void settle(CheckoutTicket.Status status, String message) {
+            this.message = message;
+            this.completedAt = LocalDateTime.now();
+            this.order = null;
+            this.status = status;
+        }
+        
+        void finish(CheckoutTicket.Status status, String message) {
+            settle(status, message);
+            done.complete(view());
+        }
+        
+        CheckoutTicket view() {
+            return CheckoutTicket.builder()
+                    .ticketId(id)
+                    .tenantId(tenantId)
+                    .status(status)
+                    .orderId(orderId)
+                    .orderNumber(orderNumber)
+                    .message(message)
+                    .acceptedAt(acceptedAt)
+                    .completedAt(completedAt)
+                    .build();
+        }
+    }
+    
+    private static final class ClaimLostException extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        ClaimLostException() {
+            super("Checkout ticket was taken over by another instance");
+        }
+    }
+}
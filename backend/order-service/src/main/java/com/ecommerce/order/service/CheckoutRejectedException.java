@@ -0,0 +1,14 @@
+package com.ecommerce.order.service;
+
+/**
+ * Thrown when the asynchronous checkout queue is full or shutting down. The request was
+ * not accepted and can be retried.
+ */
+public class CheckoutRejectedException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public CheckoutRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.order.service;
+
+/**
+ * Count-based sliding window circuit breaker. The breaker opens when, over the last
+ * {@code windowSize} calls, the failure rate or the slow call rate reaches its threshold;
+ * after {@code openDuration} a few trial calls are let through and their outcome decides
+ * whether it closes again.
+ */
+public class CircuitBreaker {
+    
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int position;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialPermits;
+    private int trialSuccesses;
+    private long timesOpened;
+    
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, long openDurationNanos, int halfOpenCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationNanos = openDurationNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.failed = new boolean[windowSize];
+        this.slow = new boolean[windowSize];
+    }
+    
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            trialPermits = halfOpenCalls;
+            trialSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialPermits == 0) {
+                return false;
+            }
+            trialPermits--;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+    
+    public synchronized void onResult(boolean callFailed, boolean callSlow) {
+        switch (state) {
+            case CLOSED -> {
+                record(callFailed, callSlow);
+                if (recorded >= minimumCalls
+                        && (failures >= failureRateThreshold * recorded || slowCalls >= slowCallRateThreshold * recorded)) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> {
+                if (callFailed || callSlow) {
+                    open();
+                } else if (++trialSuccesses >= halfOpenCalls) {
+                    state = State.CLOSED;
+                }
+            }
+            default -> {
+                // Calls that started before the breaker opened do not count
+            }
+        }
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0.0 : (double) failures / recorded;
+    }
+    
+    public synchronized double getSlowCallRate() {
+        return recorded == 0 ? 0.0 : (double) slowCalls / recorded;
+    }
+    
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+    
+    private void record(boolean callFailed, boolean callSlow) {
+        if (recorded == windowSize) {
+            failures -= failed[position] ? 1 : 0;
+            slowCalls -= slow[position] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[position] = callFailed;
+        slow[position] = callSlow;
+        failures += callFailed ? 1 : 0;
+        slowCalls += callSlow ? 1 : 0;
+        position = (position + 1) % windowSize;
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        timesOpened++;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,338 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.dto.ApiResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key} and replays its response to
+ * retries.
+ * <p>
+ * Keys are looked up in a small in-memory LRU first, where a request still running on
+ * this instance is represented by its future, so concurrent duplicates wait for it
+ * instead of running again. Behind it, the {@code idempotency_keys} table claims keys
+ * across instances and keeps completed responses for {@code app.idempotency.ttl}. A
+ * claim that is not completed within {@code app.idempotency.lock-timeout} (for example
+ * because the instance died) can be taken over. Server errors are not stored, so the
+ * client can retry them. A replay carries the stored status and body, and the
+ * {@link #REPLAYED_RESPONSE_HEADERS} the original response had.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+    public static final List<String> REPLAYED_RESPONSE_HEADERS = List.of(HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER);
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Duration waitTimeout;
+    private final Map<String, Entry> recent;
+    
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${app.idempotency.lock-timeout:60s}") Duration lockTimeout,
+                              @Value("${app.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                              @Value("${app.idempotency.cache-size:10000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.waitTimeout = waitTimeout;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+    
+    /**
+     * Returns the response of the first request with this key for the tenant, user and
+     * scope, running {@code action} only if there is none yet.
+     */
+    public ResponseEntity<?> execute(Long tenantId, Long userId, String scope, String key, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(
+                    HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters", "INVALID_IDEMPOTENCY_KEY"));
+        }
+        String fingerprint = fingerprint(request);
+        String cacheKey = tenantId + "|" + userId + "|" + scope + "|" + key;
+        
+        Entry entry;
+        boolean owner = false;
+        synchronized (recent) {
+            entry = recent.get(cacheKey);
+            if (entry == null || entry.isExpired()) {
+                entry = new Entry(fingerprint, new CompletableFuture<>());
+                recent.put(cacheKey, entry);
+                owner = true;
+            }
+        }
+        if (!entry.fingerprint.equals(fingerprint)) {
+            return keyReused();
+        }
+        if (!owner) {
+            return awaitLocal(entry);
+        }
+        
+        try {
+            StoredResponse response = claimAndRun(tenantId, userId, scope, key, fingerprint, action);
+            entry.complete(response, response.isStored() ? ttl : Duration.ZERO);
+            return response.original != null ? response.original : response.toResponseEntity();
+        } catch (RuntimeException e) {
+            entry.complete(null, Duration.ZERO);
+            throw e;
+        } finally {
+            if (!entry.isCacheable()) {
+                synchronized (recent) {
+                    recent.remove(cacheKey, entry);
+                }
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:60000}")
+    public void purgeExpired() {
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ? LIMIT 1000",
+                    Timestamp.valueOf(LocalDateTime.now()));
+        } while (deleted == 1000);
+    }
+    
+    private StoredResponse claimAndRun(Long tenantId, Long userId, String scope, String key, String fingerprint,
+                                       Supplier<ResponseEntity<?>> action) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE tenant_id = ? AND user_id = ? AND scope = ? " +
+                    "AND idem_key = ? AND expires_at < ?", tenantId, userId, scope, key, Timestamp.valueOf(now));
+            int claimed = jdbcTemplate.update("INSERT IGNORE INTO idempotency_keys (tenant_id, user_id, scope, idem_key, " +
+                            "request_hash, status, created_at, expires_at) VALUES (?, ?, ?, ?, ?, 'IN_PROGRESS', ?, ?)",
+                    tenantId, userId, scope, key, fingerprint, Timestamp.valueOf(now), Timestamp.valueOf(now.plus(lockTimeout)));
+            if (claimed == 1) {
+                return run(tenantId, userId, scope, key, action);
+            }
+            
+            List<StoredResponse> existing = jdbcTemplate.query("SELECT request_hash, status, response_status, response_body, " +
+                            "response_headers FROM idempotency_keys WHERE tenant_id = ? AND user_id = ? AND scope = ? AND idem_key = ?",
+                    (rs, rowNum) -> {
+                        if (!rs.getString("request_hash").equals(fingerprint)) {
+                            return StoredResponse.KEY_REUSED;
+                        }
+                        return "COMPLETED".equals(rs.getString("status"))
+                                ? new StoredResponse(rs.getInt("response_status"), rs.getString("response_body"),
+                                        deserializeHeaders(rs.getString("response_headers")), null)
+                                : StoredResponse.IN_PROGRESS;
+                    },
+                    tenantId, userId, scope, key);
+            StoredResponse stored = existing.isEmpty() ? StoredResponse.IN_PROGRESS : existing.get(0);
+            if (stored != StoredResponse.IN_PROGRESS) {
+                return stored;
+            }
+            // Running on another instance
+            if (System.nanoTime() > deadline) {
+                return StoredResponse.STILL_RUNNING;
+            }
+            sleep(50);
+        }
+    }
+    
+    private StoredResponse run(Long tenantId, Long userId, String scope, String key, Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(tenantId, userId, scope, key);
+            throw e;
+        }
+        
+        if (response.getStatusCode().is5xxServerError()) {
+            // Let the client retry a failure that was not its fault
+            release(tenantId, userId, scope, key);
+            return new StoredResponse(response.getStatusCode().value(), serialize(response.getBody()),
+                    replayedHeaders(response), response, false);
+        }
+        String body = serialize(response.getBody());
+        Map<String, String> headers = replayedHeaders(response);
+        jdbcTemplate.update("UPDATE idempotency_keys SET status = 'COMPLETED', response_status = ?, response_body = ?, " +
+                        "response_headers = ?, expires_at = ? WHERE tenant_id = ? AND user_id = ? AND scope = ? AND idem_key = ?",
+                response.getStatusCode().value(), body, headers.isEmpty() ? null : serialize(headers),
+                Timestamp.valueOf(LocalDateTime.now().plus(ttl)), tenantId, userId, scope, key);
+        return new StoredResponse(response.getStatusCode().value(), body, headers, response);
+    }
+    
+    private void release(Long tenantId, Long userId, String scope, String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE tenant_id = ? AND user_id = ? AND scope = ? AND idem_key = ?",
+                tenantId, userId, scope, key);
+    }
+    
+    private ResponseEntity<?> awaitLocal(Entry entry) {
+        try {
+            StoredResponse response = entry.result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return response == null ? stillRunning() : response.toResponseEntity();
+        } catch (TimeoutException e) {
+            return stillRunning();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return stillRunning();
+        } catch (Exception e) {
+            return stillRunning();
+        }
+    }
+    
+    private String fingerprint(Object request) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+    
+    private String serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to store response", e);
+        }
+    }
+    
+    private static Map<String, String> replayedHeaders(ResponseEntity<?> response) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : REPLAYED_RESPONSE_HEADERS) {
+            String value = response.getHeaders().getFirst(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        return headers;
+    }
+    
+    private Map<String, String> deserializeHeaders(String headers) {
+        if (headers == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(headers, new TypeReference<Map<String, String>>() { });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read stored response headers", e);
+        }
+    }
+    
+    private static ResponseEntity<?> keyReused() {
+        return ResponseEntity.unprocessableEntity().body(ApiResponse.error(
+                HEADER + " was already used with a different request", "IDEMPOTENCY_KEY_REUSED"));
+    }
+    
+    private static ResponseEntity<?> stillRunning() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(
+                "A request with this " + HEADER + " is still being processed", "IDEMPOTENCY_KEY_IN_PROGRESS"));
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+    
+    private static final class StoredResponse {
+        
+        static final StoredResponse IN_PROGRESS = new StoredResponse(0, null, Map.of(), null, false);
+        static final StoredResponse KEY_REUSED = new StoredResponse(0, null, Map.of(), keyReused(), false);
+        static final StoredResponse STILL_RUNNING = new StoredResponse(0, null, Map.of(), stillRunning(), false);
+        
+        private final int status;
+        private final String body;
+        private final Map<String, String> headers;
+        private final ResponseEntity<?> original;
+        private final boolean stored;
+        
+        StoredResponse(int status, String body, Map<String, String> headers, ResponseEntity<?> original) {
+            this(status, body, headers, original, true);
+        }
+        
+        StoredResponse(int status, String body, Map<String, String> headers, ResponseEntity<?> original, boolean stored) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+            this.original = original;
+            this.stored = stored;
+        }
+        
+        boolean isStored() {
+            return stored;
+        }
+        
+        ResponseEntity<?> toResponseEntity() {
+            if (body == null) {
+                return original;
+            }
+            return ResponseEntity.status(status)
+                    .headers(replayed -> headers.forEach(replayed::set))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final String fingerprint;
+        private final CompletableFuture<StoredResponse> result;
+        private volatile long expiresAtMillis = Long.MAX_VALUE;
+        
+        Entry(String fingerprint, CompletableFuture<StoredResponse> result) {
+            this.fingerprint = fingerprint;
+            this.result = result;
+        }
+        
+        void complete(StoredResponse response, Duration ttl) {
+            expiresAtMillis = System.currentTimeMillis() + ttl.toMillis();
+            result.complete(response);
+        }
+        
+        boolean isCacheable() {
+            return result.isDone() && expiresAtMillis > System.currentTimeMillis();
+        }
+        
+        boolean isExpired() {
+            return result.isDone() && expiresAtMillis <= System.currentTimeMillis();
+        }
+    }
+}
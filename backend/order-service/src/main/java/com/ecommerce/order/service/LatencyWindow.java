@@ -0,0 +1,43 @@
+package com.ecommerce.order.service;
+
+import java.util.Arrays;
+
+/**
+ * The most recent call latencies in a fixed-size ring, for percentile estimates.
+ */
+public class LatencyWindow {
+    
+    private final long[] samples;
+    private int position;
+    private int count;
+    
+    public LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+    
+    public synchronized void record(long nanos) {
+        samples[position] = nanos;
+        position = (position + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+    
+    public synchronized int size() {
+        return count;
+    }
+    
+    /**
+     * The given percentile (0-1) of the recorded latencies in nanoseconds, or -1 when empty.
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.OrderArchiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves delivered and cancelled orders that have not changed for {@code app.archive.min-age}
+ * from the hot tables to the archive tables, in small transactions with a pause between
+ * them so the archiver never competes with checkout for long. Instances can run it at the
+ * same time; each batch skips rows another instance has locked.
+ */
+@Component
+@Slf4j
+public class OrderArchiver {
+    
+    private static final Set<Order.Status> TERMINAL = EnumSet.of(Order.Status.DELIVERED, Order.Status.CANCELLED);
+    
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final int maxBatchesPerRun;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder archived = new LongAdder();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunArchived;
+    
+    public OrderArchiver(OrderArchiveRepository orderArchiveRepository,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${app.archive.enabled:true}") boolean enabled,
+                         @Value("${app.archive.min-age:90d}") Duration minAge,
+                         @Value("${app.archive.batch-size:500}") int batchSize,
+                         @Value("${app.archive.pause-ms:200}") long pauseMillis,
+                         @Value("${app.archive.max-batches-per-run:200}") int maxBatchesPerRun) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.archive.interval-ms:3600000}", initialDelayString = "${app.archive.initial-delay-ms:60000}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+    
+    /**
+     * Archives until nothing eligible is left or the per-run batch limit is reached, and
+     * returns the number of orders moved. Does nothing if a run is already in progress.
+     */
+    public long run() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long moved = 0;
+        try {
+            LocalDateTime before = LocalDateTime.now().minus(minAge);
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer count = transactionTemplate.execute(status -> {
+                    List<Long> ids = orderArchiveRepository.lockArchivable(TERMINAL, before, batchSize);
+                    if (!ids.isEmpty()) {
+                        orderArchiveRepository.moveToArchive(ids);
+                    }
+                    return ids.size();
+                });
+                moved += count == null ? 0 : count;
+                archived.add(count == null ? 0 : count);
+                if (count == null || count < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Order archival failed", e);
+        } finally {
+            lastRunAt = LocalDateTime.now();
+            lastRunArchived = moved;
+            running.set(false);
+        }
+        if (moved > 0) {
+            log.info("Archived {} orders last updated before {}", moved, LocalDateTime.now().minus(minAge));
+        }
+        return moved;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("minAge", minAge.toString());
+        stats.put("running", running.get());
+        stats.put("archived", archived.sum());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunArchived", lastRunArchived);
+        return stats;
+    }
+}
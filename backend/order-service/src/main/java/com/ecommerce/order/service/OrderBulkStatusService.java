@@ -0,0 +1,143 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.dto.StockReservationCommand;
+import com.ecommerce.common.dto.StockReservationRequest;
+import com.ecommerce.order.dto.BulkStatusUpdateResult;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Moves many orders of one tenant to a new status at once. Orders are processed in
+ * chunks, each in its own transaction: one locking read of the chunk's current statuses,
+ * one UPDATE for the orders whose transition is allowed, one query to reload them and
+ * one batched insert each into the event log and the outbox.
+ */
+@Service
+@Slf4j
+public class OrderBulkStatusService {
+    
+    // PENDING orders are confirmed only by their stock reservation reply
+    private static final Map<Order.Status, Set<Order.Status>> ALLOWED_FROM = Map.of(
+            Order.Status.PENDING, EnumSet.noneOf(Order.Status.class),
+            Order.Status.CONFIRMED, EnumSet.noneOf(Order.Status.class),
+            Order.Status.SHIPPED, EnumSet.of(Order.Status.CONFIRMED),
+            Order.Status.DELIVERED, EnumSet.of(Order.Status.SHIPPED),
+            Order.Status.CANCELLED, EnumSet.of(Order.Status.PENDING, Order.Status.CONFIRMED));
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final OrderRepository orderRepository;
+    private final OutboxService outboxService;
+    private final OrderEventLog orderEventLog;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    
+    public OrderBulkStatusService(NamedParameterJdbcTemplate jdbcTemplate,
+                                  OrderRepository orderRepository,
+                                  OutboxService outboxService,
+                                  OrderEventLog orderEventLog,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${app.bulk-status.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderRepository = orderRepository;
+        this.outboxService = outboxService;
+        this.orderEventLog = orderEventLog;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+    
+    public BulkStatusUpdateResult updateStatus(List<Long> orderIds, Order.Status status, Long tenantId) {
+        // Ascending id order keeps concurrent bulk updates from deadlocking on row locks
+        List<Long> ids = new ArrayList<>(new TreeSet<>(orderIds));
+        Map<Long, BulkStatusUpdateResult.Item> results = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            transactionTemplate.executeWithoutResult(tx -> updateChunk(chunk, status, tenantId, results));
+        }
+        
+        List<BulkStatusUpdateResult.Item> ordered = orderIds.stream()
+                .distinct()
+                .map(results::get)
+                .collect(Collectors.toList());
+        int updated = (int) ordered.stream().filter(item -> item.getOutcome() == BulkStatusUpdateResult.Outcome.UPDATED).count();
+        log.info("Bulk moved {} of {} orders to {} for tenant {}", updated, ordered.size(), status, tenantId);
+        return BulkStatusUpdateResult.builder()
+                .updated(updated)
+                .rejected(ordered.size() - updated)
+                .results(ordered)
+                .build();
+    }
+    
+    private void updateChunk(List<Long> chunk, Order.Status status, Long tenantId, Map<Long, BulkStatusUpdateResult.Item> results) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", chunk)
+                .addValue("tenantId", tenantId);
+        Map<Long, Order.Status> current = new HashMap<>();
+        jdbcTemplate.query("SELECT id, status FROM orders WHERE tenant_id = :tenantId AND id IN (:ids) FOR UPDATE", params,
+                rs -> {
+                    current.put(rs.getLong("id"), Order.Status.valueOf(rs.getString("status")));
+                });
+        
+        Set<Order.Status> allowed = ALLOWED_FROM.get(status);
+        List<Long> accepted = new ArrayList<>();
+        Map<Long, Order.Status> previous = new HashMap<>();
+        for (Long id : chunk) {
+            Order.Status from = current.get(id);
+            BulkStatusUpdateResult.Outcome outcome;
+            if (from == null) {
+                outcome = BulkStatusUpdateResult.Outcome.NOT_FOUND;
+            } else if (!allowed.contains(from)) {
+                outcome = BulkStatusUpdateResult.Outcome.INVALID_TRANSITION;
+            } else {
+                outcome = BulkStatusUpdateResult.Outcome.UPDATED;
+                accepted.add(id);
+                previous.put(id, from);
+            }
+            results.put(id, new BulkStatusUpdateResult.Item(id, outcome, from));
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        
+        jdbcTemplate.update("UPDATE orders SET status = :status, updated_at = :updatedAt, version = version + 1 WHERE id IN (:ids)",
+                new MapSqlParameterSource()
+                        .addValue("status", status.name())
+                        .addValue("updatedAt", Timestamp.valueOf(Order.now()))
+                        .addValue("ids", accepted));
+        
+        List<Order> orders = orderRepository.findWithItemsByIdIn(accepted);
+        orderEventLog.recordStatusChanged(orders);
+        
+        Map<String, Object> events = new LinkedHashMap<>();
+        Map<String, Object> releases = new LinkedHashMap<>();
+        for (Order order : orders) {
+            events.put(order.getOrderNumber(), order);
+            if (status == Order.Status.CANCELLED) {
+                // Same as a single cancellation: give back whatever stock was reserved
+                releases.put(order.getOrderNumber(), StockReservationCommand.builder()
+                        .type(StockReservationCommand.Type.RELEASE)
+                        .reservationId(order.getOrderNumber())
+                        .tenantId(order.getTenantId())
+                        .build());
+            }
+        }
+        outboxService.appendAll("order-events", "order.status.updated", events);
+        outboxService.appendAll(StockReservationCommand.TOPIC, null, releases);
+    }
+}
@@ -0,0 +1,170 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.OrderEvent;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.OrderEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every order's lifecycle (created, status changed, payment changed) as insert-only
+ * events in the caller's transaction, and rebuilds an order's state from its latest
+ * snapshot plus the events after it.
+ * <p>
+ * Events are appended after the write that locks the order row, so the events of one
+ * order get ids in commit order. Snapshots are taken in the background for orders whose
+ * tail has grown past {@code app.order-events.snapshot-interval}, and when a replay has
+ * to fold that many events.
+ */
+@Service
+@Slf4j
+public class OrderEventLog {
+    
+    private final OrderEventRepository orderEventRepository;
+    private final ObjectMapper objectMapper;
+    private final int snapshotInterval;
+    private final int snapshotBatchSize;
+    private final AtomicLong snapshotWatermark = new AtomicLong(-1);
+    private final AtomicLong snapshotsTaken = new AtomicLong();
+    
+    public OrderEventLog(OrderEventRepository orderEventRepository,
+                         ObjectMapper objectMapper,
+                         @Value("${app.order-events.snapshot-interval:50}") int snapshotInterval,
+                         @Value("${app.order-events.snapshot-batch-size:500}") int snapshotBatchSize) {
+        this.orderEventRepository = orderEventRepository;
+        this.objectMapper = objectMapper;
+        this.snapshotInterval = snapshotInterval;
+        this.snapshotBatchSize = snapshotBatchSize;
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Order> orders) {
+        orderEventRepository.appendAll(orders.stream()
+                .map(order -> new OrderEventRepository.NewEvent(order.getId(), order.getTenantId(), OrderEvent.Type.CREATED,
+                        order.getStatus(), order.getPaymentStatus(), serialize(order), occurredAt(order)))
+                .toList());
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChanged(Collection<Order> orders) {
+        orderEventRepository.appendAll(orders.stream()
+                .map(order -> new OrderEventRepository.NewEvent(order.getId(), order.getTenantId(),
+                        OrderEvent.Type.STATUS_CHANGED, order.getStatus(), null, null, occurredAt(order)))
+                .toList());
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordPaymentChanged(Order order) {
+        orderEventRepository.appendAll(List.of(new OrderEventRepository.NewEvent(order.getId(), order.getTenantId(),
+                OrderEvent.Type.PAYMENT_CHANGED, null, order.getPaymentStatus(), null, occurredAt(order))));
+    }
+    
+    public List<OrderEvent> getTimeline(Long orderId, Long tenantId) {
+        return orderEventRepository.findTimeline(orderId, tenantId);
+    }
+    
+    /**
+     * Current state of the order according to its event log, or empty if no events were
+     * recorded for it.
+     */
+    public Optional<Order> replay(Long orderId) {
+        Optional<OrderEventRepository.Snapshot> snapshot = orderEventRepository.findSnapshot(orderId);
+        Order state = snapshot.map(s -> deserialize(s.state())).orElse(null);
+        long lastEventId = snapshot.map(OrderEventRepository.Snapshot::lastEventId).orElse(0L);
+        
+        List<OrderEventRepository.StoredEvent> tail = orderEventRepository.findAfter(orderId, lastEventId);
+        for (OrderEventRepository.StoredEvent stored : tail) {
+            state = apply(state, stored);
+            lastEventId = stored.event().getId();
+        }
+        if (state != null && tail.size() >= snapshotInterval) {
+            orderEventRepository.saveSnapshot(new OrderEventRepository.Snapshot(orderId, lastEventId, serialize(state)));
+            snapshotsTaken.incrementAndGet();
+        }
+        return Optional.ofNullable(state);
+    }
+    
+    /**
+     * Snapshots orders that received events since the last pass and have a long tail.
+     * Orders missed here, for example because their events committed after the pass read
+     * past them, are snapshotted on a later event or by {@link #replay(Long)}.
+     */
+    @Scheduled(fixedDelayString = "${app.order-events.snapshot-interval-ms:60000}")
+    public void snapshotLongTails() {
+        long upTo = orderEventRepository.findMaxEventId();
+        long after = snapshotWatermark.getAndSet(upTo);
+        if (after < 0 || upTo <= after) {
+            // First pass only sets the watermark
+            return;
+        }
+        List<Long> orderIds = orderEventRepository.findOrdersToSnapshot(after, upTo, snapshotInterval, snapshotBatchSize);
+        for (Long orderId : orderIds) {
+            try {
+                replay(orderId);
+            } catch (Exception e) {
+                log.warn("Failed to snapshot order {}: {}", orderId, e.getMessage());
+            }
+        }
+        if (!orderIds.isEmpty()) {
+            log.info("Snapshotted {} orders from events {} to {}", orderIds.size(), after + 1, upTo);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "snapshotInterval", snapshotInterval,
+                "snapshotWatermark", snapshotWatermark.get(),
+                "snapshotsTaken", snapshotsTaken.get());
+    }
+    
+    private Order apply(Order state, OrderEventRepository.StoredEvent stored) {
+        OrderEvent event = stored.event();
+        if (event.getType() == OrderEvent.Type.CREATED) {
+            return deserialize(stored.payload());
+        }
+        if (state == null) {
+            throw new IllegalStateException("Event " + event.getId() + " of order " + event.getOrderId()
+                    + " has no created event or snapshot before it");
+        }
+        if (event.getType() == OrderEvent.Type.STATUS_CHANGED) {
+            state.setStatus(event.getStatus());
+        } else {
+            state.setPaymentStatus(event.getPaymentStatus());
+        }
+        state.setUpdatedAt(event.getOccurredAt());
+        return state;
+    }
+    
+    private static LocalDateTime occurredAt(Order order) {
+        return order.getUpdatedAt() != null ? order.getUpdatedAt() : LocalDateTime.now();
+    }
+    
+    private String serialize(Order order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize order " + order.getId(), e);
+        }
+    }
+    
+    private Order deserialize(String state) {
+        try {
+            return objectMapper.readValue(state, Order.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read order state", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.OrderRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes order query results straight from a forward-only MySQL result set to the
+ * response, one row at a time, detaching each order once written. Memory use does not
+ * depend on the number of rows. Line items are not exported; loading them would need a
+ * second statement on a connection that is still streaming.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+    
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+        
+        private final String contentType;
+        private final String extension;
+        
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        public static Format of(String format) {
+            return Arrays.stream(values())
+                    .filter(value -> value.name().equalsIgnoreCase(format))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown export format: " + format));
+        }
+    }
+    
+    private static final List<String> COLUMNS = List.of(
+            "id", "orderNumber", "userId", "tenantId", "status", "paymentStatus",
+            "paymentMethod", "totalAmount", "createdAt", "updatedAt");
+    
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    
+    public void exportByStatus(Order.Status status, Format format, OutputStream out) {
+        export(() -> orderRepository.streamByStatusOrderById(status), format, out);
+    }
+    
+    public void exportByPaymentStatus(Order.PaymentStatus paymentStatus, Format format, OutputStream out) {
+        export(() -> orderRepository.streamByPaymentStatusOrderById(paymentStatus), format, out);
+    }
+    
+    public void exportByTenantAndStatus(Long tenantId, Order.Status status, Format format, OutputStream out) {
+        export(() -> orderRepository.streamByTenantIdAndStatusOrderById(tenantId, status), format, out);
+    }
+    
+    public void exportByTenantAndPaymentStatus(Long tenantId, Order.PaymentStatus paymentStatus, Format format, OutputStream out) {
+        export(() -> orderRepository.streamByTenantIdAndPaymentStatusOrderById(tenantId, paymentStatus), format, out);
+    }
+    
+    private void export(Supplier<Stream<Order>> query, Format format, OutputStream out) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<Order> orders = query.get();
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+                orders.forEach(order -> {
+                    rows.write(values(order));
+                    entityManager.detach(order);
+                });
+                rows.finish();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    private static List<Object> values(Order order) {
+        return Arrays.asList(order.getId(), order.getOrderNumber(), order.getUserId(), order.getTenantId(),
+                order.getStatus(), order.getPaymentStatus(), order.getPaymentMethod(), order.getTotalAmount(),
+                order.getCreatedAt(), order.getUpdatedAt());
+    }
+    
+    private interface RowWriter {
+        void write(List<Object> values);
+        
+        default void finish() throws IOException {
+        }
+    }
+    
+    private final class NdjsonRowWriter implements RowWriter {
+        
+        private final JsonGenerator generator;
+        
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows stay in the generator's buffer; the response is flushed once at the end
+            this.generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            this.generator.setRootValueSeparator(null);
+        }
+        
+        @Override
+        public void write(List<Object> values) {
+            try {
+                generator.writeStartObject();
+                for (int i = 0; i < COLUMNS.size(); i++) {
+                    generator.writeObjectField(COLUMNS.get(i), values.get(i));
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+    
+    private static final class CsvRowWriter implements RowWriter {
+        
+        private final Writer writer;
+        
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+        
+        @Override
+        public void write(List<Object> values) {
+            try {
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(escape(values.get(i)));
+                }
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
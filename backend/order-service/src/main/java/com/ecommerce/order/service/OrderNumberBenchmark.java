@@ -0,0 +1,93 @@
+package com.ecommerce.order.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures {@link OrderNumberGenerator} throughput with several threads generating at
+ * once, and checks that no number was handed out twice. Only available with the
+ * {@code benchmark} profile.
+ */
+@Component
+@Profile("benchmark")
+@RequiredArgsConstructor
+public class OrderNumberBenchmark {
+    
+    public static final int MAX_THREADS = 64;
+    public static final int MAX_TOTAL = 2_000_000;
+    
+    private final OrderNumberGenerator generator;
+    
+    public synchronized Map<String, Object> run(int threads, int perThread) throws Exception {
+        if (threads < 1 || threads > MAX_THREADS || perThread < 1 || (long) threads * perThread > MAX_TOTAL) {
+            throw new IllegalArgumentException("Use 1-" + MAX_THREADS + " threads and at most " + MAX_TOTAL + " numbers in total");
+        }
+        
+        // Warm up so the measurement is not dominated by JIT compilation
+        for (int i = 0; i < 100_000; i++) {
+            generator.nextId();
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long[] ids = new long[perThread];
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            
+            long begin = System.nanoTime();
+            start.countDown();
+            List<long[]> generated = new ArrayList<>();
+            for (Future<long[]> result : results) {
+                generated.add(result.get());
+            }
+            long nanos = System.nanoTime() - begin;
+            
+            long total = (long) threads * perThread;
+            long[] all = new long[(int) total];
+            int position = 0;
+            for (long[] ids : generated) {
+                System.arraycopy(ids, 0, all, position, ids.length);
+                position += ids.length;
+            }
+            Arrays.sort(all);
+            long duplicates = 0;
+            for (int i = 1; i < all.length; i++) {
+                if (all[i] == all[i - 1]) {
+                    duplicates++;
+                }
+            }
+            
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("threads", threads);
+            report.put("generated", total);
+            report.put("durationMillis", nanos / 1_000_000.0);
+            report.put("numbersPerSecond", (long) (total / (nanos / 1_000_000_000.0)));
+            report.put("nanosPerNumber", (double) nanos / total);
+            report.put("duplicates", duplicates);
+            report.put("nodeId", generator.getNodeId());
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
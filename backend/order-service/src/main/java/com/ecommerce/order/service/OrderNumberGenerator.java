@@ -0,0 +1,161 @@
+package com.ecommerce.order.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique, time-ordered order numbers without touching the database.
+ * <p>
+ * Each number packs 41 bits of milliseconds since 2024-01-01, a 10 bit node id and a
+ * 12 bit per-millisecond sequence into a 63 bit value, rendered as a fixed-width
+ * Crockford base32 string so that order numbers sort by creation time. Timestamp and
+ * sequence live in one {@link AtomicLong}, so generation is a lock-free increment; when a
+ * millisecond's sequence runs out, or the clock steps back, the generator moves on to
+ * the next millisecond instead of waiting.
+ * <p>
+ * Node ids are leased from the {@code order_number_nodes} table at startup and kept alive
+ * by a heartbeat, or fixed with {@code app.order-number.node-id}.
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+    
+    public static final String PREFIX = "ORD-";
+    
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_NODES = 1 << NODE_BITS;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration leaseDuration;
+    private final boolean leased;
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last number handed out
+    private final AtomicLong lastTick = new AtomicLong();
+    
+    private volatile long nodeId = -1;
+    private volatile long leaseValidUntil;
+    
+    public OrderNumberGenerator(JdbcTemplate jdbcTemplate,
+                                @Value("${app.order-number.node-id:-1}") long configuredNodeId,
+                                @Value("${app.order-number.node-lease:5m}") Duration leaseDuration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaseDuration = leaseDuration;
+        this.leased = configuredNodeId < 0;
+        if (!leased) {
+            if (configuredNodeId >= MAX_NODES) {
+                throw new IllegalStateException("app.order-number.node-id must be below " + MAX_NODES);
+            }
+            this.nodeId = configuredNodeId;
+        }
+    }
+    
+    public String next() {
+        return PREFIX + encode(nextId());
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void claimNodeIdAtStartup() {
+        if (leased) {
+            try {
+                claimNodeId();
+            } catch (Exception e) {
+                log.error("Failed to claim an order number node id, retrying on first use", e);
+            }
+        }
+    }
+    
+    public long nextId() {
+        long node = nodeId;
+        if (node < 0 || (leased && System.nanoTime() - leaseValidUntil > 0)) {
+            // Never keep using a node id whose lease may have been taken over
+            node = claimNodeId();
+        }
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long tick = lastTick.updateAndGet(last -> Math.max(last + 1, now));
+        long millis = tick >>> SEQUENCE_BITS;
+        long sequence = tick & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+    
+    public long getNodeId() {
+        return nodeId;
+    }
+    
+    /**
+     * Renews the node lease well before it expires. If the lease was lost (e.g. after a
+     * long pause) a new node id is claimed.
+     */
+    @Scheduled(fixedDelayString = "${app.order-number.heartbeat-interval-ms:60000}")
+    public void heartbeat() {
+        if (!leased || nodeId < 0) {
+            return;
+        }
+        int renewed = jdbcTemplate.update(
+                "UPDATE order_number_nodes SET heartbeat_at = CURRENT_TIMESTAMP WHERE node_id = ? AND instance_id = ?",
+                nodeId, instanceId);
+        if (renewed == 0) {
+            log.warn("Lost order number node lease {}, claiming a new node id", nodeId);
+            nodeId = -1;
+            claimNodeId();
+        } else {
+            extendLease();
+        }
+    }
+    
+    private synchronized long claimNodeId() {
+        if (nodeId >= 0 && (!leased || System.nanoTime() - leaseValidUntil < 0)) {
+            return nodeId;
+        }
+        nodeId = -1;
+        int start = ThreadLocalRandom.current().nextInt(MAX_NODES);
+        for (int i = 0; i < MAX_NODES; i++) {
+            int candidate = (start + i) % MAX_NODES;
+            int claimed = jdbcTemplate.update(
+                    "UPDATE order_number_nodes SET instance_id = ?, heartbeat_at = CURRENT_TIMESTAMP " +
+                    "WHERE node_id = ? AND heartbeat_at < CURRENT_TIMESTAMP - INTERVAL ? SECOND",
+                    instanceId, candidate, leaseDuration.toSeconds());
+            if (claimed == 0) {
+                claimed = jdbcTemplate.update(
+                        "INSERT IGNORE INTO order_number_nodes (node_id, instance_id, heartbeat_at) VALUES (?, ?, CURRENT_TIMESTAMP)",
+                        candidate, instanceId);
+            }
+            if (claimed == 1) {
+                log.info("Claimed order number node id {}", candidate);
+                extendLease();
+                nodeId = candidate;
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No free order number node id");
+    }
+    
+    private void extendLease() {
+        // Stop trusting the lease a little before other instances may consider it expired
+        leaseValidUntil = System.nanoTime() + leaseDuration.toNanos() * 4 / 5;
+    }
+    
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
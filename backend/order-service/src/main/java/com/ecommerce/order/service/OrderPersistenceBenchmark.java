@@ -0,0 +1,114 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.StatementCounter;
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the statements sent to MySQL to persist orders of a given size, with JDBC
+ * batching switched off for the session (one INSERT per row, as with IDENTITY keys)
+ * and with the configured batching. Every run is rolled back. Only available with the
+ * {@code benchmark} profile, which registers {@link StatementCounter} on the datasource.
+ */
+@Component
+@Profile("benchmark")
+@RequiredArgsConstructor
+public class OrderPersistenceBenchmark {
+    
+    public static final int MAX_LINES = 1000;
+    public static final int MAX_ORDERS = 100;
+    
+    private final OrderRepository orderRepository;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    
+    public synchronized List<Map<String, Object>> run(List<Integer> lineCounts, int orders, Long userId, Long tenantId) {
+        if (orders < 1 || orders > MAX_ORDERS || lineCounts.stream().anyMatch(lines -> lines < 1 || lines > MAX_LINES)) {
+            throw new IllegalArgumentException("Use 1-" + MAX_ORDERS + " orders of 1-" + MAX_LINES + " lines");
+        }
+        
+        // Warm up so the first measurement does not include connection and id block setup
+        measure(1, 1, userId, tenantId, true);
+        
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int lines : lineCounts) {
+            Map<String, Object> unbatched = measure(lines, orders, userId, tenantId, false);
+            Map<String, Object> batched = measure(lines, orders, userId, tenantId, true);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("lines", lines);
+            result.put("orders", orders);
+            result.put("unbatched", unbatched);
+            result.put("batched", batched);
+            results.add(result);
+        }
+        return results;
+    }
+    
+    private Map<String, Object> measure(int lines, int orders, Long userId, Long tenantId, boolean batched) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            Session session = entityManager.unwrap(Session.class);
+            session.setJdbcBatchSize(batched ? null : 1);
+            
+            long begin = System.nanoTime();
+            StatementCounter.start();
+            long statements;
+            try {
+                for (int i = 0; i < orders; i++) {
+                    orderRepository.save(newOrder(lines, userId, tenantId));
+                }
+                entityManager.flush();
+            } finally {
+                statements = StatementCounter.stop();
+            }
+            long nanos = System.nanoTime() - begin;
+            entityManager.clear();
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("statements", statements);
+            result.put("statementsPerOrder", (double) statements / orders);
+            result.put("millisPerOrder", nanos / 1_000_000.0 / orders);
+            return result;
+        });
+    }
+    
+    private Order newOrder(int lines, Long userId, Long tenantId) {
+        Order order = Order.builder()
+                .orderNumber(orderNumberGenerator.next())
+                .userId(userId)
+                .tenantId(tenantId)
+                .status(Order.Status.PENDING)
+                .paymentStatus(Order.PaymentStatus.PENDING)
+                .totalAmount(BigDecimal.valueOf(lines))
+                .shippingAddress("benchmark")
+                .billingAddress("benchmark")
+                .build();
+        List<OrderItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(OrderItem.builder()
+                    .order(order)
+                    .productId("benchmark-" + i)
+                    .productName("benchmark")
+                    .quantity(1)
+                    .unitPrice(BigDecimal.ONE)
+                    .totalPrice(BigDecimal.ONE)
+                    .build());
+        }
+        order.setOrderItems(items);
+        return order;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Feeds order events into {@link OrderRollupService}. Uses its own consumer group, so
+ * resetting its offsets replays the topic into the rollups without affecting anything
+ * else.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderRollupListener {
+    
+    private static final Set<String> EVENTS = Set.of("order.created", "order.status.updated", "order.payment.updated");
+    
+    private final OrderRollupService orderRollupService;
+    private final ObjectMapper objectMapper;
+    
+    @KafkaListener(
+            topics = "order-events",
+            groupId = "order-service-rollups",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer")
+    public void handleOrderEvent(@Header(name = OutboxRelay.EVENT_TYPE_HEADER, required = false) byte[] eventTypeHeader,
+                                 @Payload String payload) {
+        String eventType = eventTypeHeader != null ? new String(eventTypeHeader, StandardCharsets.UTF_8) : null;
+        if (eventType == null || !EVENTS.contains(eventType)) {
+            return;
+        }
+        Order order;
+        try {
+            order = objectMapper.readValue(payload, Order.class);
+        } catch (Exception e) {
+            log.error("Discarding unreadable {} event: {}", eventType, payload, e);
+            return;
+        }
+        if (!orderRollupService.apply(order)) {
+            log.debug("Skipped stale {} event for order {}", eventType, order.getOrderNumber());
+        }
+    }
+}
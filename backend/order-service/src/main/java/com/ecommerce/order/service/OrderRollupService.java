@@ -0,0 +1,235 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.OrderRollup;
+import com.ecommerce.order.model.Order;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-tenant day and hour rollups of order counts and amounts, maintained from order
+ * events.
+ * <p>
+ * Each order's last applied contribution is kept in {@code order_rollup_state}. An event
+ * replaces it and adds only the difference to the rollup rows, and events carrying an
+ * older order version than the stored state are ignored, so redelivered, replayed or
+ * reordered events leave the rollups unchanged. The version is bumped by every write to
+ * the order, unlike {@code updatedAt}, which can repeat or go backwards across instances.
+ * {@link #rebuild(Long)} recomputes a tenant from the orders table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderRollupService {
+    
+    public enum Granularity {
+        DAY(ChronoUnit.DAYS, "%Y-%m-%d 00:00:00"),
+        HOUR(ChronoUnit.HOURS, "%Y-%m-%d %H:00:00");
+        
+        private final ChronoUnit unit;
+        private final String bucketFormat;
+        
+        Granularity(ChronoUnit unit, String bucketFormat) {
+            this.unit = unit;
+            this.bucketFormat = bucketFormat;
+        }
+        
+        LocalDateTime bucketOf(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+    
+    private static final String UPSERT_ROLLUP =
+            "INSERT INTO order_rollups (tenant_id, granularity, bucket_start, order_count, gross_amount, paid_amount, " +
+            "refunded_amount, pending_count, confirmed_count, shipped_count, delivered_count, cancelled_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "gross_amount = gross_amount + VALUES(gross_amount), paid_amount = paid_amount + VALUES(paid_amount), " +
+            "refunded_amount = refunded_amount + VALUES(refunded_amount), " +
+            "pending_count = pending_count + VALUES(pending_count), confirmed_count = confirmed_count + VALUES(confirmed_count), " +
+            "shipped_count = shipped_count + VALUES(shipped_count), delivered_count = delivered_count + VALUES(delivered_count), " +
+            "cancelled_count = cancelled_count + VALUES(cancelled_count)";
+    
+    private static final String ROLLUP_COLUMNS =
+            "bucket_start, order_count, gross_amount, paid_amount, refunded_amount, pending_count, confirmed_count, " +
+            "shipped_count, delivered_count, cancelled_count";
+    
+    private static final RowMapper<OrderRollup> ROLLUP_MAPPER = (rs, rowNum) -> OrderRollup.builder()
+            .bucketStart(rs.getTimestamp("bucket_start") == null ? null : rs.getTimestamp("bucket_start").toLocalDateTime())
+            .orderCount(rs.getLong("order_count"))
+            .grossAmount(rs.getBigDecimal("gross_amount"))
+            .paidAmount(rs.getBigDecimal("paid_amount"))
+            .refundedAmount(rs.getBigDecimal("refunded_amount"))
+            .pendingCount(rs.getLong("pending_count"))
+            .confirmedCount(rs.getLong("confirmed_count"))
+            .shippedCount(rs.getLong("shipped_count"))
+            .deliveredCount(rs.getLong("delivered_count"))
+            .cancelledCount(rs.getLong("cancelled_count"))
+            .build();
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Applies the state carried by an order event. Returns false if the event was older
+     * than what has already been applied.
+     */
+    @Transactional
+    public boolean apply(Order order) {
+        if (order.getId() == null || order.getTenantId() == null || order.getCreatedAt() == null) {
+            log.warn("Ignoring order event without id, tenant or creation time: {}", order.getOrderNumber());
+            return false;
+        }
+        // Events published before versions were introduced count as the first version
+        long version = order.getVersion() != null ? order.getVersion() : 0L;
+        
+        List<Order> previous = jdbcTemplate.query(
+                "SELECT tenant_id, created_at, status, payment_status, total_amount, version " +
+                "FROM order_rollup_state WHERE order_id = ? FOR UPDATE",
+                (rs, rowNum) -> Order.builder()
+                        .tenantId(rs.getLong("tenant_id"))
+                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                        .status(Order.Status.valueOf(rs.getString("status")))
+                        .paymentStatus(Order.PaymentStatus.valueOf(rs.getString("payment_status")))
+                        .totalAmount(rs.getBigDecimal("total_amount"))
+                        .version(rs.getLong("version"))
+                        .build(),
+                order.getId());
+        Order applied = previous.isEmpty() ? null : previous.get(0);
+        if (applied != null && version < applied.getVersion()) {
+            return false;
+        }
+        
+        jdbcTemplate.update(
+                "INSERT INTO order_rollup_state (order_id, tenant_id, created_at, status, payment_status, total_amount, version) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE status = VALUES(status), " +
+                "payment_status = VALUES(payment_status), total_amount = VALUES(total_amount), version = VALUES(version)",
+                order.getId(), order.getTenantId(), Timestamp.valueOf(order.getCreatedAt()), order.getStatus().name(),
+                order.getPaymentStatus().name(), order.getTotalAmount(), version);
+        
+        Map<List<Object>, Delta> deltas = new LinkedHashMap<>();
+        if (applied != null) {
+            addContribution(deltas, applied, -1);
+        }
+        addContribution(deltas, order, 1);
+        deltas.forEach((bucket, delta) -> {
+            if (!delta.isZero()) {
+                upsert((Long) bucket.get(0), (Granularity) bucket.get(1), (LocalDateTime) bucket.get(2), delta);
+            }
+        });
+        return true;
+    }
+    
+    /**
+     * Recomputes a tenant's rollups from the hot and archived orders. Events applied afterwards are
+     * compared against the rebuilt state as usual.
+     */
+    @Transactional
+    public int rebuild(Long tenantId) {
+        jdbcTemplate.update("DELETE FROM order_rollup_state WHERE tenant_id = ?", tenantId);
+        jdbcTemplate.update("DELETE FROM order_rollups WHERE tenant_id = ?", tenantId);
+        int orders = jdbcTemplate.update(
+                "INSERT INTO order_rollup_state (order_id, tenant_id, created_at, status, payment_status, total_amount, version) " +
+                "SELECT id, tenant_id, created_at, status, payment_status, total_amount, version " +
+                "FROM orders WHERE tenant_id = ? " +
+                "UNION ALL SELECT id, tenant_id, created_at, status, payment_status, total_amount, version " +
+                "FROM orders_archive WHERE tenant_id = ?",
+                tenantId, tenantId);
+        for (Granularity granularity : Granularity.values()) {
+            jdbcTemplate.update(
+                    "INSERT INTO order_rollups (tenant_id, granularity, bucket_start, order_count, gross_amount, paid_amount, " +
+                    "refunded_amount, pending_count, confirmed_count, shipped_count, delivered_count, cancelled_count) " +
+                    "SELECT tenant_id, ?, DATE_FORMAT(created_at, ?) AS bucket, COUNT(*), SUM(total_amount), " +
+                    "SUM(CASE WHEN payment_status = 'PAID' THEN total_amount ELSE 0 END), " +
+                    "SUM(CASE WHEN payment_status = 'REFUNDED' THEN total_amount ELSE 0 END), " +
+                    "SUM(status = 'PENDING'), SUM(status = 'CONFIRMED'), SUM(status = 'SHIPPED'), " +
+                    "SUM(status = 'DELIVERED'), SUM(status = 'CANCELLED') " +
+                    "FROM order_rollup_state WHERE tenant_id = ? GROUP BY tenant_id, bucket",
+                    granularity.name(), granularity.bucketFormat, tenantId);
+        }
+        log.info("Rebuilt order rollups for tenant {} from {} orders", tenantId, orders);
+        return orders;
+    }
+    
+    public List<OrderRollup> getRollups(Long tenantId, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(
+                "SELECT " + ROLLUP_COLUMNS + " FROM order_rollups " +
+                "WHERE tenant_id = ? AND granularity = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                ROLLUP_MAPPER, tenantId, granularity.name(),
+                Timestamp.valueOf(granularity.bucketOf(from)), Timestamp.valueOf(to));
+    }
+    
+    /**
+     * Totals over whole days (or hours) from {@code from} up to {@code to}, summed over
+     * the rollup rows rather than the orders.
+     */
+    public OrderRollup getTotals(Long tenantId, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.queryForObject(
+                "SELECT MIN(bucket_start) AS bucket_start, COALESCE(SUM(order_count), 0) AS order_count, " +
+                "COALESCE(SUM(gross_amount), 0) AS gross_amount, COALESCE(SUM(paid_amount), 0) AS paid_amount, " +
+                "COALESCE(SUM(refunded_amount), 0) AS refunded_amount, COALESCE(SUM(pending_count), 0) AS pending_count, " +
+                "COALESCE(SUM(confirmed_count), 0) AS confirmed_count, COALESCE(SUM(shipped_count), 0) AS shipped_count, " +
+                "COALESCE(SUM(delivered_count), 0) AS delivered_count, COALESCE(SUM(cancelled_count), 0) AS cancelled_count " +
+                "FROM order_rollups WHERE tenant_id = ? AND granularity = ? AND bucket_start >= ? AND bucket_start < ?",
+                ROLLUP_MAPPER, tenantId, granularity.name(),
+                Timestamp.valueOf(granularity.bucketOf(from)), Timestamp.valueOf(to));
+    }
+    
+    private static void addContribution(Map<List<Object>, Delta> deltas, Order order, int sign) {
+        for (Granularity granularity : Granularity.values()) {
+            List<Object> bucket = List.of(order.getTenantId(), granularity, granularity.bucketOf(order.getCreatedAt()));
+            deltas.computeIfAbsent(bucket, key -> new Delta()).add(order, sign);
+        }
+    }
+    
+    private void upsert(Long tenantId, Granularity granularity, LocalDateTime bucketStart, Delta delta) {
+        jdbcTemplate.update(UPSERT_ROLLUP, tenantId, granularity.name(), Timestamp.valueOf(bucketStart),
+                delta.orders, delta.gross, delta.paid, delta.refunded, delta.byStatus[Order.Status.PENDING.ordinal()],
+                delta.byStatus[Order.Status.CONFIRMED.ordinal()], delta.byStatus[Order.Status.SHIPPED.ordinal()],
+                delta.byStatus[Order.Status.DELIVERED.ordinal()], delta.byStatus[Order.Status.CANCELLED.ordinal()]);
+    }
+    
+    private static final class Delta {
+        
+        private long orders;
+        private BigDecimal gross = BigDecimal.ZERO;
+        private BigDecimal paid = BigDecimal.ZERO;
+        private BigDecimal refunded = BigDecimal.ZERO;
+        private final long[] byStatus = new long[Order.Status.values().length];
+        
+        void add(Order order, int sign) {
+            BigDecimal amount = order.getTotalAmount() == null ? BigDecimal.ZERO : order.getTotalAmount();
+            BigDecimal signed = sign < 0 ? amount.negate() : amount;
+            orders += sign;
+            gross = gross.add(signed);
+            if (order.getPaymentStatus() == Order.PaymentStatus.PAID) {
+                paid = paid.add(signed);
+            } else if (order.getPaymentStatus() == Order.PaymentStatus.REFUNDED) {
+                refunded = refunded.add(signed);
+            }
+            byStatus[order.getStatus().ordinal()] += sign;
+        }
+        
+        boolean isZero() {
+            if (orders != 0 || gross.signum() != 0 || paid.signum() != 0 || refunded.signum() != 0) {
+                return false;
+            }
+            for (long count : byStatus) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
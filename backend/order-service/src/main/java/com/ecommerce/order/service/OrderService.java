@@ -1,20 +1,35 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.common.dto.CursorPage;
+import com.ecommerce.common.dto.PageCursor;
+import com.ecommerce.common.dto.StockReservationCommand;
+import com.ecommerce.common.dto.StockReservationRequest;
+import com.ecommerce.common.dto.StockReservationResult;
 import com.ecommerce.order.dto.OrderRequest;
+import com.ecommerce.order.dto.OrderSummary;
 import com.ecommerce.order.model.Order;
 import com.ecommerce.order.model.OrderItem;
+import com.ecommerce.order.model.Product;
+import com.ecommerce.order.repository.OrderArchiveRepository;
 import com.ecommerce.order.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,19 +38,43 @@ import java.util.stream.Collectors;
 public class OrderService {
     
     private final OrderRepository orderRepository;
+    private final OrderArchiveRepository orderArchiveRepository;
     private final ProductService productService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OutboxService outboxService;
+    private final OrderEventLog orderEventLog;
+    private final TransactionTemplate transactionTemplate;
     
-    @Transactional
+    /**
+     * Saves the order as PENDING in one short local transaction and asks product-service to
+     * reserve the stock. The reservation reply moves the order to CONFIRMED or CANCELLED,
+     * see {@link #applyStockReservationResult(StockReservationResult)}.
+     */
     public Order createOrder(OrderRequest request, Long userId, Long tenantId) {
-        // Generate unique order number
-        String orderNumber = generateOrderNumber();
-        
+        // Get product details for all lines from product service in one call
+        Map<String, Product> products = getProducts(productIdsOf(request));
+        return saveNewOrders(List.of(priceOrder(request, products, userId, tenantId))).get(0);
+    }
+    
+    public List<String> productIdsOf(OrderRequest request) {
+        return request.getItems().stream()
+                .map(OrderRequest.OrderItemRequest::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Builds an unsaved PENDING order priced from the given products, which must include
+     * every product the request refers to.
+     */
+    public Order priceOrder(OrderRequest request, Map<String, Product> products, Long userId, Long tenantId) {
         // Create order items and calculate total
         List<OrderItem> orderItems = request.getItems().stream()
                 .map(item -> {
-                    // Get product details from product service
-                    var product = productService.getProductByIdPublic(item.getProductId());
+                    Product product = products.get(item.getProductId());
+                    if (product == null) {
+                        throw new RuntimeException("Product not found: " + item.getProductId());
+                    }
                     
                     // Validate stock
                     if (product.getStockQuantity() < item.getQuantity()) {
@@ -62,7 +101,7 @@ public class OrderService {
         
         // Create order
         Order order = Order.builder()
-                .orderNumber(orderNumber)
+                .orderNumber(generateOrderNumber())
                 .userId(userId)
                 .tenantId(tenantId)
                 .status(Order.Status.PENDING)
@@ -76,41 +115,125 @@ public class OrderService {
                 .build();
         
         // Set order reference in order items
-        final Order finalOrder = order;
-        orderItems.forEach(item -> item.setOrder(finalOrder));
-        
-        order = orderRepository.save(order);
-        
-        // Update product stock
-        updateProductStock(orderItems);
+        orderItems.forEach(item -> item.setOrder(order));
+        return order;
+    }
+    
+    /**
+     * Saves new orders with their created events and stock reservation commands in one
+     * transaction, so a batch of orders costs one commit and batched inserts.
+     */
+    public List<Order> saveNewOrders(List<Order> orders) {
+        return transactionTemplate.execute(status -> {
+            List<Order> saved = orderRepository.saveAll(orders);
+            orderEventLog.recordCreated(saved);
+            for (Order order : saved) {
+                publishOrderCreatedEvent(order);
+                publishStockCommand(StockReservationCommand.Type.RESERVE, order);
+            }
+            return saved;
+        });
+    }
+    
+    @Transactional
+    public void applyStockReservationResult(StockReservationResult result) {
+        if (result.getStatus() != StockReservationResult.Status.RESERVED
+                && result.getStatus() != StockReservationResult.Status.FAILED) {
+            // Still in progress or a release acknowledgement; an order left waiting is resent or expired by PendingOrderSweeper
+            log.debug("Ignoring {} stock reply for order {}", result.getStatus(), result.getReservationId());
+            return;
+        }
+        Order order = orderRepository.findByOrderNumber(result.getReservationId()).orElse(null);
+        if (order == null) {
+            log.warn("Stock reservation reply for unknown order: {}", result.getReservationId());
+            return;
+        }
         
-        // Publish events
-        publishOrderCreatedEvent(order);
+        Order.Status status = result.isReserved() ? Order.Status.CONFIRMED : Order.Status.CANCELLED;
+        if (orderRepository.transitionStatus(order.getId(), Order.Status.PENDING, status, Order.now()) == 0) {
+            // Already decided; if the order was cancelled while waiting, give the stock back
+            if (result.isReserved() && order.getStatus() == Order.Status.CANCELLED) {
+                publishStockCommand(StockReservationCommand.Type.RELEASE, order);
+            }
+            return;
+        }
         
-        return order;
+        order = orderRepository.findWithItemsById(order.getId()).orElseThrow();
+        log.info("Order {} {} after stock reservation: {}", order.getOrderNumber(), status, result.getMessage());
+        orderEventLog.recordStatusChanged(List.of(order));
+        publishOrderStatusUpdatedEvent(order);
+    }
+    
+    /**
+     * Sends the RESERVE command again for an order that is still PENDING and has not changed
+     * since {@code before}. Returns false if the order moved on or another instance resent it.
+     */
+    public boolean resendStockReservation(Long orderId, LocalDateTime before) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (orderRepository.touchIfUpdatedBefore(orderId, Order.Status.PENDING, before, Order.now()) == 0) {
+                return false;
+            }
+            publishStockCommand(StockReservationCommand.Type.RESERVE, orderRepository.findWithItemsById(orderId).orElseThrow());
+            return true;
+        }));
+    }
+    
+    /**
+     * Cancels an order that is still PENDING and releases whatever stock product-service may
+     * have reserved for it. Returns false if the order was decided in the meantime.
+     */
+    public boolean expirePendingOrder(Long orderId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (orderRepository.transitionStatus(orderId, Order.Status.PENDING, Order.Status.CANCELLED, Order.now()) == 0) {
+                return false;
+            }
+            Order order = orderRepository.findWithItemsById(orderId).orElseThrow();
+            log.warn("Order {} cancelled: no stock reservation reply", order.getOrderNumber());
+            orderEventLog.recordStatusChanged(List.of(order));
+            publishOrderStatusUpdatedEvent(order);
+            publishStockCommand(StockReservationCommand.Type.RELEASE, order);
+            return true;
+        }));
+    }
+    
+    public Map<String, Product> getProducts(List<String> productIds) {
+        Map<String, Product> products = new HashMap<>();
+        productService.getProductsByIdsPublic(productIds).forEach(product -> products.put(product.getId(), product));
+        return products;
     }
     
     @Transactional
     public Order updateOrderStatus(Long orderId, Order.Status status, Long tenantId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         if (!order.getTenantId().equals(tenantId)) {
             throw new RuntimeException("Order does not belong to this tenant");
         }
         
+        Order.Status previous = order.getStatus();
+        if (previous == Order.Status.PENDING && status == Order.Status.CONFIRMED) {
+            // Confirming before the reservation reply would let a FAILED reply find nothing to cancel
+            throw new RuntimeException("Order is confirmed once its stock is reserved");
+        }
         order.setStatus(status);
-        order = orderRepository.save(order);
+        // Flushed so the event carries the new updatedAt
+        order = orderRepository.saveAndFlush(order);
+        orderEventLog.recordStatusChanged(List.of(order));
         
         // Publish event
         publishOrderStatusUpdatedEvent(order);
+        if (status == Order.Status.CANCELLED && (previous == Order.Status.PENDING || previous == Order.Status.CONFIRMED)) {
+            // Release is a no-op if nothing was reserved, and a late reservation reply releases itself
+            publishStockCommand(StockReservationCommand.Type.RELEASE, order);
+        }
         
         return order;
     }
     
     @Transactional
     public Order updatePaymentStatus(Long orderId, Order.PaymentStatus paymentStatus, Long tenantId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         if (!order.getTenantId().equals(tenantId)) {
@@ -118,7 +241,8 @@ public class OrderService {
         }
         
         order.setPaymentStatus(paymentStatus);
-        order = orderRepository.save(order);
+        order = orderRepository.saveAndFlush(order);
+        orderEventLog.recordPaymentChanged(order);
         
         // Publish event
         publishPaymentStatusUpdatedEvent(order);
@@ -127,7 +251,8 @@ public class OrderService {
     }
     
     public Order getOrderById(Long orderId, Long tenantId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithItemsById(orderId)
+                .or(() -> orderArchiveRepository.findById(orderId))
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
         if (!order.getTenantId().equals(tenantId)) {
@@ -138,30 +263,78 @@ public class OrderService {
     }
     
     public Order getOrderByNumber(String orderNumber) {
-        return orderRepository.findByOrderNumber(orderNumber)
+        return orderRepository.findWithItemsByOrderNumber(orderNumber)
+                .or(() -> orderArchiveRepository.findByOrderNumber(orderNumber))
                 .orElseThrow(() -> new RuntimeException("Order not found"));
     }
     
     public List<Order> getOrdersByUser(Long userId) {
-        return orderRepository.findByUserId(userId);
+        List<Order> orders = new ArrayList<>(orderRepository.findByUserId(userId));
+        orders.addAll(orderArchiveRepository.findByUserId(userId));
+        return orders;
+    }
+    
+    /**
+     * Newest first across the hot and archive tables. Both are read up to the end of the
+     * requested page and merged, so deep pages cost more; prefer the cursor variant.
+     */
+    public Slice<Order> getOrdersByUser(Long userId, Pageable pageable) {
+        int limit = (int) pageable.getOffset() + pageable.getPageSize() + 1;
+        List<Order> merged = mergeNewestFirst(
+                withItems(orderRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, PageRequest.of(0, limit))),
+                orderArchiveRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, limit));
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new SliceImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, merged.size() > to);
     }
     
-    public Page<Order> getOrdersByUser(Long userId, Pageable pageable) {
-        return orderRepository.findByUserId(userId, pageable);
+    public Slice<OrderSummary> getOrderSummariesByUser(Long userId, Pageable pageable) {
+        return orderRepository.findSummariesByUserId(userId, pageable);
+    }
+    
+    public CursorPage<Order> getOrdersByUser(Long userId, String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Order> orders = after == null
+                ? orderRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, limit)
+                : orderRepository.findByUserIdAfter(userId, after.createdAt(), parseOrderId(after), limit);
+        List<Order> archived = after == null
+                ? orderArchiveRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, size + 1)
+                : orderArchiveRepository.findByUserIdAfter(userId, after.createdAt(), parseOrderId(after), size + 1);
+        List<Order> merged = mergeNewestFirst(withItems(orders), archived);
+        return CursorPage.of(new ArrayList<>(merged.subList(0, Math.min(size + 1, merged.size()))), size,
+                order -> new PageCursor(order.getCreatedAt(), String.valueOf(order.getId())));
     }
     
     public List<Order> getOrdersByTenant(Long tenantId) {
         return orderRepository.findByTenantId(tenantId);
     }
     
-    public Page<Order> getOrdersByTenant(Long tenantId, Pageable pageable) {
-        return orderRepository.findByTenantId(tenantId, pageable);
+    public Slice<Order> getOrdersByTenant(Long tenantId, Pageable pageable) {
+        return withItems(orderRepository.findByTenantId(tenantId, pageable));
+    }
+    
+    public Slice<OrderSummary> getOrderSummariesByTenant(Long tenantId, Pageable pageable) {
+        return orderRepository.findSummariesByTenantId(tenantId, pageable);
+    }
+    
+    public CursorPage<Order> getOrdersByTenant(Long tenantId, String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Order> orders = after == null
+                ? orderRepository.findByTenantIdOrderByCreatedAtDescIdDesc(tenantId, limit)
+                : orderRepository.findByTenantIdAfter(tenantId, after.createdAt(), parseOrderId(after), limit);
+        return CursorPage.of(withItems(orders), size, order -> new PageCursor(order.getCreatedAt(), String.valueOf(order.getId())));
     }
     
     public List<Order> getOrdersByUserAndTenant(Long userId, Long tenantId) {
         return orderRepository.findByUserIdAndTenantId(userId, tenantId);
     }
     
+    public List<OrderSummary> getOrderSummariesByUserAndTenant(Long userId, Long tenantId) {
+        return orderRepository.findSummariesByUserIdAndTenantId(userId, tenantId);
+    }
+    
     public List<Order> getOrdersByStatus(Order.Status status) {
         return orderRepository.findByStatus(status);
     }
@@ -170,6 +343,10 @@ public class OrderService {
         return orderRepository.findByTenantIdAndStatus(tenantId, status);
     }
     
+    public List<OrderSummary> getOrderSummariesByTenantAndStatus(Long tenantId, Order.Status status) {
+        return orderRepository.findSummariesByTenantIdAndStatus(tenantId, status);
+    }
+    
     public List<Order> getOrdersByPaymentStatus(Order.PaymentStatus paymentStatus) {
         return orderRepository.findByPaymentStatus(paymentStatus);
     }
@@ -178,38 +355,79 @@ public class OrderService {
         return orderRepository.findByTenantIdAndPaymentStatus(tenantId, paymentStatus);
     }
     
+    public List<OrderSummary> getOrderSummariesByTenantAndPaymentStatus(Long tenantId, Order.PaymentStatus paymentStatus) {
+        return orderRepository.findSummariesByTenantIdAndPaymentStatus(tenantId, paymentStatus);
+    }
+    
+    private static List<Order> mergeNewestFirst(List<Order> hot, List<Order> archived) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<Order> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        merged.addAll(archived);
+        merged.sort(Comparator.comparing(Order::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Order::getId, Comparator.reverseOrder()));
+        return merged;
+    }
+    
+    private Slice<Order> withItems(Slice<Order> page) {
+        return new SliceImpl<>(withItems(page.getContent()), page.getPageable(), page.hasNext());
+    }
+    
+    /**
+     * The same orders, in the same order, with their items loaded by one extra query
+     * instead of one query per order.
+     */
+    private List<Order> withItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<Long, Order> loaded = orderRepository.findWithItemsByIdIn(orders.stream().map(Order::getId).toList()).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        return orders.stream().map(order -> loaded.getOrDefault(order.getId(), order)).collect(Collectors.toList());
+    }
+    
+    private Long parseOrderId(PageCursor cursor) {
+        try {
+            return Long.valueOf(cursor.id());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
     private String generateOrderNumber() {
-        String orderNumber;
-        do {
-            orderNumber = "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        } while (orderRepository.existsByOrderNumber(orderNumber));
-        return orderNumber;
-    }
-    
-    private void updateProductStock(List<OrderItem> orderItems) {
-        orderItems.forEach(item -> {
-            try {
-                var product = productService.getProductByIdPublic(item.getProductId());
-                int newStock = product.getStockQuantity() - item.getQuantity();
-                productService.updateStockQuantity(item.getProductId(), product.getTenantId(), newStock);
-            } catch (Exception e) {
-                log.error("Failed to update stock for product: {}", item.getProductId(), e);
-            }
-        });
+        return orderNumberGenerator.next();
+    }
+    
+    private void publishStockCommand(StockReservationCommand.Type type, Order order) {
+        StockReservationCommand command = StockReservationCommand.builder()
+                .type(type)
+                .reservationId(order.getOrderNumber())
+                .tenantId(order.getTenantId())
+                .items(type == StockReservationCommand.Type.RESERVE
+                        ? order.getOrderItems().stream()
+                                .map(item -> new StockReservationRequest.Item(item.getProductId(), item.getQuantity()))
+                                .collect(Collectors.toList())
+                        : null)
+                .build();
+        // Keyed by order number so the reserve and release of one order stay in order
+        outboxService.append(StockReservationCommand.TOPIC, null, order.getOrderNumber(), command);
+        log.info("Published stock {} command for order: {}", type, order.getOrderNumber());
     }
     
     private void publishOrderCreatedEvent(Order order) {
-        kafkaTemplate.send("order-events", "order.created", order);
+        outboxService.append("order-events", "order.created", order.getOrderNumber(), order);
         log.info("Published order created event for order: {}", order.getOrderNumber());
     }
     
     private void publishOrderStatusUpdatedEvent(Order order) {
-        kafkaTemplate.send("order-events", "order.status.updated", order);
+        outboxService.append("order-events", "order.status.updated", order.getOrderNumber(), order);
         log.info("Published order status updated event for order: {}", order.getOrderNumber());
     }
     
     private void publishPaymentStatusUpdatedEvent(Order order) {
-        kafkaTemplate.send("order-events", "order.payment.updated", order);
+        outboxService.append("order-events", "order.payment.updated", order.getOrderNumber(), order);
         log.info("Published payment status updated event for order: {}", order.getOrderNumber());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.OutboxEvent;
+import com.ecommerce.order.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains the outbox table to Kafka in batches. Only one instance relays at a time (MySQL
+ * named lock). Records are keyed by aggregate id, so an aggregate's events share a
+ * partition, and the event type travels in the {@value #EVENT_TYPE_HEADER} header.
+ * <p>
+ * A batch is sent in id order in windows holding at most one event per aggregate, and
+ * sending stops after a window with a failure, so a failed event is never overtaken by a
+ * later event of its aggregate. Delivery is at least once.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    
+    public static final String EVENT_TYPE_HEADER = "event-type";
+    
+    private static final String LOCK_NAME = "order_outbox_relay";
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    
+    private final LongAdder published = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile double lastBatchEventsPerSecond;
+    private volatile long lastBatchMillis;
+    
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       ObjectMapper objectMapper,
+                       JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${app.outbox.batch-size:500}") int batchSize,
+                       @Value("${app.outbox.send-timeout:10s}") Duration sendTimeout) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+    }
+    
+    /**
+     * Runs every linger interval and keeps going while batches come back full, so events
+     * wait at most about one linger interval when the relay is keeping up.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.linger-ms:50}")
+    public void relay() {
+        try {
+            Integer sent;
+            do {
+                sent = transactionTemplate.execute(status -> publishBatch());
+            } while (sent != null && sent == batchSize);
+        } catch (Exception e) {
+            failures.increment();
+            log.error("Outbox relay failed", e);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxEventRepository.count());
+        stats.put("lagMillis", outboxEventRepository.findFirstByOrderByIdAsc()
+                .map(oldest -> Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis())
+                .orElse(0L));
+        stats.put("published", published.sum());
+        stats.put("batches", batches.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastBatchMillis", lastBatchMillis);
+        stats.put("lastBatchEventsPerSecond", lastBatchEventsPerSecond);
+        return stats;
+    }
+    
+    private int publishBatch() {
+        // Held for the rest of this transaction's connection use, released below
+        Integer locked = jdbcTemplate.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME);
+        if (locked == null || locked != 1) {
+            return 0;
+        }
+        try {
+            List<OutboxEvent> events = outboxEventRepository.findByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return 0;
+            }
+            
+            long start = System.nanoTime();
+            List<Long> sent = new ArrayList<>(events.size());
+            int next = 0;
+            boolean failed = false;
+            while (next < events.size() && !failed) {
+                // Events of different aggregates are in flight together, a second event of one waits for the next window
+                Set<String> aggregates = new HashSet<>();
+                List<OutboxEvent> window = new ArrayList<>();
+                List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>();
+                while (next < events.size() && aggregates.add(events.get(next).getAggregateId())) {
+                    OutboxEvent event = events.get(next++);
+                    window.add(event);
+                    sends.add(kafkaTemplate.send(toRecord(event)));
+                }
+                for (int i = 0; i < window.size(); i++) {
+                    try {
+                        sends.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                        sent.add(window.get(i).getId());
+                    } catch (Exception e) {
+                        // Nothing after this window is sent, so the aggregate's later events wait for this one
+                        failures.increment();
+                        failed = true;
+                        log.warn("Failed to publish outbox event {}, retrying from there", window.get(i).getId(), e);
+                    }
+                }
+            }
+            
+            outboxEventRepository.deleteAllByIdInBatch(sent);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            published.add(sent.size());
+            batches.increment();
+            lastBatchMillis = millis;
+            lastBatchEventsPerSecond = sent.size() * 1000.0 / Math.max(1, millis);
+            return sent.size();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to publish outbox batch", e);
+        } finally {
+            jdbcTemplate.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+        }
+    }
+    
+    private ProducerRecord<String, Object> toRecord(OutboxEvent event) throws IOException {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(event.getTopic(), event.getAggregateId(),
+                objectMapper.readTree(event.getPayload()));
+        if (event.getEventType() != null) {
+            record.headers().add(EVENT_TYPE_HEADER, event.getEventType().getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.OutboxEvent;
+import com.ecommerce.order.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records events in the outbox table as part of the caller's transaction, so an event
+ * exists if and only if the change it describes was committed. {@link OutboxRelay}
+ * publishes them.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String topic, String eventType, String aggregateId, Object payload) {
+        outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateId(aggregateId)
+                .topic(topic)
+                .eventType(eventType)
+                .payload(serialize(topic, payload))
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+    
+    /**
+     * Appends one event per aggregate with a single batched insert, in map order. The event
+     * type may be null for topics that only carry one kind of message.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(String topic, String eventType, Map<String, ?> payloadsByAggregate) {
+        if (payloadsByAggregate.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(payloadsByAggregate.size());
+        payloadsByAggregate.forEach((aggregateId, payload) -> rows.add(new Object[] {
+                aggregateId, topic, eventType, serialize(topic, payload), now}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO outbox_events (aggregate_id, topic, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)", rows);
+    }
+    
+    private String serialize(String topic, Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + topic + " event", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.model.Order;
+import com.ecommerce.order.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps orders from waiting forever for a stock reservation reply that was lost. An order
+ * still PENDING after {@code app.pending-orders.resend-after} without a change gets its
+ * RESERVE command sent again (product-service answers retries from the recorded
+ * reservation); once it is older than {@code app.pending-orders.timeout} it is cancelled
+ * and its stock released. Instances can run it at the same time; each order is resent or
+ * cancelled by one conditional update.
+ */
+@Component
+@Slf4j
+public class PendingOrderSweeper {
+    
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final Duration resendAfter;
+    private final Duration timeout;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder resent = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private volatile LocalDateTime lastRunAt;
+    
+    public PendingOrderSweeper(OrderRepository orderRepository,
+                               OrderService orderService,
+                               @Value("${app.pending-orders.resend-after:1m}") Duration resendAfter,
+                               @Value("${app.pending-orders.timeout:15m}") Duration timeout,
+                               @Value("${app.pending-orders.batch-size:500}") int batchSize,
+                               @Value("${app.pending-orders.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.resendAfter = resendAfter;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.pending-orders.interval-ms:30000}", initialDelayString = "${app.pending-orders.initial-delay-ms:30000}")
+    public void scheduledRun() {
+        run();
+    }
+    
+    /**
+     * Resends or expires waiting orders until none are due or the per-run batch limit is
+     * reached. Does nothing if a run is already in progress.
+     */
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime resendBefore = now.minus(resendAfter);
+            LocalDateTime expireBefore = now.minus(timeout);
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                List<Order> waiting = orderRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAt(
+                        Order.Status.PENDING, resendBefore, PageRequest.of(0, batchSize));
+                for (Order order : waiting) {
+                    sweep(order, resendBefore, expireBefore);
+                }
+                if (waiting.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Pending order sweep failed", e);
+        } finally {
+            lastRunAt = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+    
+    private void sweep(Order order, LocalDateTime resendBefore, LocalDateTime expireBefore) {
+        try {
+            if (order.getCreatedAt().isBefore(expireBefore)) {
+                if (orderService.expirePendingOrder(order.getId())) {
+                    expired.increment();
+                }
+            } else if (orderService.resendStockReservation(order.getId(), resendBefore)) {
+                resent.increment();
+                log.info("Resent stock reservation for order {}", order.getOrderNumber());
+            }
+        } catch (Exception e) {
+            log.error("Failed to sweep pending order {}", order.getOrderNumber(), e);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("resendAfter", resendAfter.toString());
+        stats.put("timeout", timeout.toString());
+        stats.put("running", running.get());
+        stats.put("resent", resent.sum());
+        stats.put("expired", expired.sum());
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+}
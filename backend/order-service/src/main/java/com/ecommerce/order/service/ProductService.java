@@ -2,7 +2,8 @@ package com.ecommerce.order.service;
 
 import com.ecommerce.order.model.Product;
 
+import java.util.List;
+
 public interface ProductService {
-    Product getProductByIdPublic(String productId);
-    void updateStockQuantity(String productId, Long tenantId, Integer quantity);
+    List<Product> getProductsByIdsPublic(List<String> productIds);
 } 
\ No newline at end of file
@@ -1,43 +1,94 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.common.dto.ProductBatchRequest;
 import com.ecommerce.order.model.Product;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ProductServiceClient implements ProductService {
     
+    private static final ParameterizedTypeReference<ApiResponse<List<Product>>> PRODUCTS_RESPONSE =
+            new ParameterizedTypeReference<>() {};
+    
     private final RestTemplate restTemplate;
+    private final ProductServiceGuard guard;
     
     @Value("${app.product-service.url:http://localhost:8083}")
     private String productServiceUrl;
     
+    @Value("${app.http-client.total-timeout:8s}")
+    private Duration totalTimeout;
+    
+    public ProductServiceClient(RestTemplate restTemplate, ProductServiceGuard guard) {
+        this.restTemplate = restTemplate;
+        this.guard = guard;
+    }
+    
     @Override
-    public Product getProductByIdPublic(String productId) {
+    public List<Product> getProductsByIdsPublic(List<String> productIds) {
         try {
-            String url = productServiceUrl + "/api/products/public/" + productId;
-            ResponseEntity<Product> response = restTemplate.getForEntity(url, Product.class);
-            return response.getBody();
+            // Large orders are split into batches that are fetched concurrently
+            List<CompletableFuture<List<Product>>> batches = new ArrayList<>();
+            for (int from = 0; from < productIds.size(); from += ProductBatchRequest.MAX_IDS) {
+                List<String> batch = List.copyOf(productIds.subList(from, Math.min(from + ProductBatchRequest.MAX_IDS, productIds.size())));
+                batches.add(withDeadline(guard.hedgedCall(() -> fetchProducts(batch))));
+            }
+            
+            List<Product> products = new ArrayList<>();
+            for (CompletableFuture<List<Product>> batch : batches) {
+                products.addAll(await(batch));
+            }
+            return products;
+        } catch (ProductServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Failed to get product by ID: {}", productId, e);
-            throw new RuntimeException("Failed to get product information");
+            log.error("Failed to get products by IDs: {}", productIds, e);
+            throw new ProductServiceUnavailableException("Failed to get product information");
         }
     }
     
-    @Override
-    public void updateStockQuantity(String productId, Long tenantId, Integer quantity) {
+    private List<Product> fetchProducts(List<String> productIds) {
+        String url = productServiceUrl + "/api/products/public/batch";
+        ProductBatchRequest request = ProductBatchRequest.builder()
+                .ids(productIds)
+                .build();
+        ResponseEntity<ApiResponse<List<Product>>> response = restTemplate.exchange(
+                url, HttpMethod.POST, new HttpEntity<>(request), PRODUCTS_RESPONSE);
+        return response.getBody().getData();
+    }
+    
+    private <T> CompletableFuture<T> withDeadline(CompletableFuture<T> call) {
+        return call.orTimeout(totalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) {
         try {
-            String url = productServiceUrl + "/api/products/" + productId + "/stock?quantity=" + quantity;
-            restTemplate.put(url, null);
-        } catch (Exception e) {
-            log.error("Failed to update stock for product: {}", productId, e);
-            throw new RuntimeException("Failed to update product stock");
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new RuntimeException("Product service call timed out", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
-} 
\ No newline at end of file
+}
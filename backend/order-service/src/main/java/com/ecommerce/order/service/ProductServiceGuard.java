@@ -0,0 +1,229 @@
+package com.ecommerce.order.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Protects calls to product-service. Every attempt needs a circuit breaker permission and
+ * a bulkhead slot, otherwise it fails immediately with {@link ProductServiceUnavailableException}
+ * instead of tying up a request thread. Idempotent reads can be hedged: when the first
+ * attempt has not answered after the recent p95 latency a second one is sent and the
+ * first answer wins.
+ */
+@Component
+@Slf4j
+public class ProductServiceGuard {
+    
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    private final AsyncTaskExecutor remoteCallExecutor;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final int bulkheadSize;
+    private final LatencyWindow latencies = new LatencyWindow(512);
+    private final long slowCallNanos;
+    private final long defaultHedgeDelayMillis;
+    private final long minHedgeDelayMillis;
+    private final ScheduledExecutorService hedgeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-service-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile long hedgeDelayMillis;
+    private volatile long hedgeDelayComputedAt;
+    
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder breakerRejections = new LongAdder();
+    private final LongAdder bulkheadRejections = new LongAdder();
+    
+    public ProductServiceGuard(@Qualifier("remoteCallExecutor") AsyncTaskExecutor remoteCallExecutor,
+                               @Value("${app.product-service.breaker.window-size:50}") int windowSize,
+                               @Value("${app.product-service.breaker.minimum-calls:20}") int minimumCalls,
+                               @Value("${app.product-service.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                               @Value("${app.product-service.breaker.slow-call-rate-threshold:0.8}") double slowCallRateThreshold,
+                               @Value("${app.product-service.breaker.slow-call-duration:2s}") Duration slowCallDuration,
+                               @Value("${app.product-service.breaker.open-duration:10s}") Duration openDuration,
+                               @Value("${app.product-service.breaker.half-open-calls:5}") int halfOpenCalls,
+                               @Value("${app.product-service.bulkhead.max-concurrent-calls:64}") int bulkheadSize,
+                               @Value("${app.product-service.hedge.default-delay:100ms}") Duration defaultHedgeDelay,
+                               @Value("${app.product-service.hedge.min-delay:10ms}") Duration minHedgeDelay) {
+        this.remoteCallExecutor = remoteCallExecutor;
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                slowCallRateThreshold, openDuration.toNanos(), halfOpenCalls);
+        this.bulkhead = new Semaphore(bulkheadSize);
+        this.bulkheadSize = bulkheadSize;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.defaultHedgeDelayMillis = defaultHedgeDelay.toMillis();
+        this.minHedgeDelayMillis = minHedgeDelay.toMillis();
+        this.hedgeDelayMillis = defaultHedgeDelayMillis;
+    }
+    
+    public <T> CompletableFuture<T> call(Supplier<T> call) {
+        calls.increment();
+        try {
+            return attempt(call, false);
+        } catch (ProductServiceUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Like {@link #call(Supplier)}, but sends a second attempt if the first is slower than
+     * the recent p95. Only for idempotent reads.
+     */
+    public <T> CompletableFuture<T> hedgedCall(Supplier<T> call) {
+        calls.increment();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        
+        try {
+            completeFrom(attempt(call, false), result, outstanding, false);
+        } catch (ProductServiceUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        hedgeScheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                outstanding.incrementAndGet();
+                completeFrom(attempt(call, true), result, outstanding, true);
+                hedges.increment();
+            } catch (ProductServiceUnavailableException e) {
+                // A hedge that cannot get a permit is simply not sent
+                outstanding.decrementAndGet();
+            }
+        }, hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+        return result;
+    }
+    
+    public Map<String, Object> getStats() {
+        long totalCalls = calls.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("breakerState", circuitBreaker.getState());
+        stats.put("breakerFailureRate", circuitBreaker.getFailureRate());
+        stats.put("breakerSlowCallRate", circuitBreaker.getSlowCallRate());
+        stats.put("breakerTimesOpened", circuitBreaker.getTimesOpened());
+        stats.put("calls", totalCalls);
+        stats.put("attempts", attempts.sum());
+        stats.put("failures", failures.sum());
+        stats.put("slowCalls", slowCalls.sum());
+        stats.put("hedges", hedges.sum());
+        stats.put("hedgeRate", totalCalls == 0 ? 0.0 : (double) hedges.sum() / totalCalls);
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("hedgeDelayMillis", hedgeDelayMillis);
+        stats.put("breakerRejections", breakerRejections.sum());
+        stats.put("bulkheadRejections", bulkheadRejections.sum());
+        stats.put("bulkheadInUse", bulkheadSize - bulkhead.availablePermits());
+        stats.put("p50Millis", latencies.percentile(0.50) / 1_000_000.0);
+        stats.put("p95Millis", latencies.percentile(0.95) / 1_000_000.0);
+        stats.put("p99Millis", latencies.percentile(0.99) / 1_000_000.0);
+        return stats;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        hedgeScheduler.shutdownNow();
+    }
+    
+    /**
+     * Starts one attempt. Rejections are only counted for first attempts, a skipped hedge
+     * is not a rejected call.
+     */
+    private <T> CompletableFuture<T> attempt(Supplier<T> call, boolean hedge) {
+        if (!bulkhead.tryAcquire()) {
+            if (!hedge) {
+                bulkheadRejections.increment();
+            }
+            throw new ProductServiceUnavailableException("Product service is at its concurrency limit");
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            if (!hedge) {
+                breakerRejections.increment();
+            }
+            throw new ProductServiceUnavailableException("Product service circuit breaker is open");
+        }
+        
+        attempts.increment();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(call, remoteCallExecutor);
+        } catch (RuntimeException e) {
+            // Executor queue is full, which counts against the breaker like any other overload
+            bulkhead.release();
+            circuitBreaker.onResult(true, false);
+            throw new ProductServiceUnavailableException("Product service is at its concurrency limit");
+        }
+        return future.whenComplete((value, error) -> {
+            bulkhead.release();
+            long nanos = System.nanoTime() - start;
+            boolean failed = error != null && !isClientError(error);
+            boolean slow = nanos >= slowCallNanos;
+            if (!failed) {
+                latencies.record(nanos);
+            } else {
+                failures.increment();
+            }
+            if (slow) {
+                slowCalls.increment();
+            }
+            circuitBreaker.onResult(failed, slow);
+        });
+    }
+    
+    private <T> void completeFrom(CompletableFuture<T> attempt, CompletableFuture<T> result, AtomicInteger outstanding, boolean hedge) {
+        attempt.whenComplete((value, error) -> {
+            if (error == null) {
+                if (result.complete(value) && hedge) {
+                    hedgeWins.increment();
+                }
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+    
+    private long hedgeDelayMillis() {
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedAt >= HEDGE_DELAY_REFRESH_NANOS) {
+            hedgeDelayComputedAt = now;
+            hedgeDelayMillis = latencies.size() < HEDGE_MIN_SAMPLES
+                    ? defaultHedgeDelayMillis
+                    : Math.max(minHedgeDelayMillis, TimeUnit.NANOSECONDS.toMillis(latencies.percentile(0.95)));
+        }
+        return hedgeDelayMillis;
+    }
+    
+    private static boolean isClientError(Throwable error) {
+        // 4xx answers mean product-service is healthy, they say nothing about its availability
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause instanceof HttpClientErrorException;
+    }
+}
@@ -0,0 +1,14 @@
+package com.ecommerce.order.service;
+
+/**
+ * Thrown when product-service cannot answer: without calling it when its circuit breaker
+ * is open or the bulkhead has no free slot, or when a call fails or times out.
+ */
+public class ProductServiceUnavailableException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public ProductServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.common.dto.StockReservationCommand;
+import com.ecommerce.common.dto.StockReservationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+/**
+ * Receives stock reservation replies from product-service and completes the checkout saga.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockReplyListener {
+    
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    
+    @KafkaListener(
+            topics = StockReservationCommand.REPLY_TOPIC,
+            groupId = "order-service",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer")
+    public void handleStockReply(@Payload String payload) {
+        StockReservationResult result;
+        try {
+            result = objectMapper.readValue(payload, StockReservationResult.class);
+        } catch (Exception e) {
+            log.error("Discarding unreadable stock reply: {}", payload, e);
+            return;
+        }
+        orderService.applyStockReservationResult(result);
+    }
+}
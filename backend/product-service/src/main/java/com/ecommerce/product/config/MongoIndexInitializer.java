@@ -0,0 +1,62 @@
+package com.ecommerce.product.config;
+
+import com.ecommerce.product.model.OutboxEvent;
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.model.StockReservation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the document classes, plus the ones annotations cannot
+ * express, before the application starts serving. Spring Boot no longer creates
+ * annotated indexes automatically.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexInitializer implements ApplicationRunner {
+    
+    private static final List<Class<?>> DOCUMENTS = List.of(Product.class, StockReservation.class, OutboxEvent.class);
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> document : DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            resolver.resolveIndexFor(document).forEach(index -> ensureIndex(indexOps, index));
+        }
+        
+        // SKUs are optional, so uniqueness only applies to products that have one
+        ensureIndex(mongoTemplate.indexOps(Product.class), new Index()
+                .on("tenantId", Sort.Direction.ASC)
+                .on("sku", Sort.Direction.ASC)
+                .named("tenant_sku_unique")
+                .unique()
+                .partial(PartialIndexFilter.of(Criteria.where("sku").type(2))));
+    }
+    
+    private void ensureIndex(IndexOperations indexOps, IndexDefinition index) {
+        try {
+            String name = indexOps.ensureIndex(index);
+            log.info("Ensured index {}", name);
+        } catch (Exception e) {
+            // Keep starting up; an existing conflicting index or duplicate data needs manual attention
+            log.error("Failed to create index {}", index.getIndexKeys(), e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.product.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Wires the {@link QueryProfiler} into the Mongo client and tags every repository call
+ * with its method name so commands can be attributed to the repository method that issued them.
+ */
+@Configuration
+public class MongoProfilingConfig {
+    
+    @Bean
+    public MongoClientSettingsBuilderCustomizer queryProfilerCustomizer(QueryProfiler queryProfiler) {
+        return settings -> settings.addCommandListener(queryProfiler);
+    }
+    
+    @Bean
+    public static BeanPostProcessor repositoryProfilingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                                    profilingInterceptor(repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+    
+    private static MethodInterceptor profilingInterceptor(String repositoryName) {
+        return invocation -> {
+            String previous = QueryProfiler.enter(repositoryName + "." + invocation.getMethod().getName());
+            try {
+                return invocation.proceed();
+            } finally {
+                QueryProfiler.restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,379 @@
+package com.ecommerce.product.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records latency per repository method and query shape (the filter with its values
+ * replaced by "?") for every Mongo command issued by this service. Read shapes are
+ * periodically explained with executionStats in the background so the profile also
+ * shows documents examined versus returned and whether the plan was a collection scan.
+ */
+@Component
+@Slf4j
+public class QueryProfiler implements CommandListener {
+    
+    private static final ThreadLocal<String> CURRENT_METHOD = new ThreadLocal<>();
+    
+    private static final Set<String> PROFILED_COMMANDS = Set.of(
+            "find", "aggregate", "count", "distinct", "update", "delete", "findAndModify", "insert");
+    private static final Set<String> EXPLAINABLE_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+    private static final Set<String> LITERAL_STAGES = Set.of("$sort", "$project", "$limit", "$skip");
+    private static final Set<String> SESSION_FIELDS = Set.of(
+            "$db", "lsid", "$clusterTime", "txnNumber", "$readPreference", "readConcern",
+            "apiVersion", "apiStrict", "apiDeprecationErrors", "startTransaction", "autocommit");
+    private static final String UNKNOWN_CALLER = "MongoTemplate";
+    
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final boolean enabled;
+    private final long explainIntervalNanos;
+    private final int maxShapes;
+    
+    private final Map<ShapeKey, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> {
+                Thread thread = new Thread(runnable, "query-profiler-explain");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    
+    public QueryProfiler(ObjectProvider<MongoTemplate> mongoTemplate,
+                         @Value("${app.query-profiler.enabled:true}") boolean enabled,
+                         @Value("${app.query-profiler.explain-interval:5m}") Duration explainInterval,
+                         @Value("${app.query-profiler.max-shapes:1000}") int maxShapes) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.explainIntervalNanos = explainInterval.toNanos();
+        this.maxShapes = maxShapes;
+    }
+    
+    /**
+     * Attributes the Mongo commands issued by the current thread to a repository method
+     * until the returned value is passed to {@link #restore(String)}.
+     */
+    static String enter(String method) {
+        String previous = CURRENT_METHOD.get();
+        CURRENT_METHOD.set(method);
+        return previous;
+    }
+    
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT_METHOD.remove();
+        } else {
+            CURRENT_METHOD.set(previous);
+        }
+    }
+    
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!enabled || !PROFILED_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        ShapeKey key = new ShapeKey(currentMethod(), collectionOf(event.getCommandName(), command),
+                event.getCommandName(), shapeOf(event.getCommandName(), command));
+        
+        ShapeStats stats = shapes.get(key);
+        if (stats == null) {
+            if (shapes.size() >= maxShapes) {
+                return;
+            }
+            stats = shapes.computeIfAbsent(key, k -> new ShapeStats());
+        }
+        inFlight.put(event.getRequestId(), new InFlight(stats, System.nanoTime()));
+        
+        if (EXPLAINABLE_COMMANDS.contains(event.getCommandName()) && stats.claimExplain(explainIntervalNanos)) {
+            // The event's command is only valid during this callback, so explain a copy
+            BsonDocument copy = command.clone();
+            SESSION_FIELDS.forEach(copy::remove);
+            String database = event.getDatabaseName();
+            ShapeStats target = stats;
+            explainExecutor.execute(() -> explain(database, copy, target));
+        }
+    }
+    
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        InFlight call = inFlight.remove(event.getRequestId());
+        if (call != null) {
+            call.stats.record(System.nanoTime() - call.startNanos, returnedCount(event.getResponse()));
+        }
+    }
+    
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        InFlight call = inFlight.remove(event.getRequestId());
+        if (call != null) {
+            call.stats.failures.increment();
+        }
+    }
+    
+    public List<Map<String, Object>> getProfile() {
+        List<Map.Entry<ShapeKey, ShapeStats>> entries = new ArrayList<>(shapes.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<ShapeKey, ShapeStats> entry) -> entry.getValue().totalNanos.sum()).reversed());
+        
+        List<Map<String, Object>> profile = new ArrayList<>();
+        for (Map.Entry<ShapeKey, ShapeStats> entry : entries) {
+            profile.add(entry.getValue().toMap(entry.getKey()));
+        }
+        return profile;
+    }
+    
+    public void reset() {
+        shapes.clear();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+    
+    private void explain(String database, BsonDocument command, ShapeStats stats) {
+        try {
+            Document explain = new Document("explain", command).append("verbosity", "executionStats");
+            Document result = mongoTemplate.getObject().getMongoDatabaseFactory().getMongoDatabase(database).runCommand(explain);
+            
+            Document executionStats = findDocument(result, "executionStats");
+            if (executionStats != null) {
+                stats.docsExamined = longValue(executionStats.get("totalDocsExamined"));
+                stats.keysExamined = longValue(executionStats.get("totalKeysExamined"));
+                stats.explainedReturned = longValue(executionStats.get("nReturned"));
+            }
+            stats.collectionScan = containsStage(findDocument(result, "queryPlanner"), "COLLSCAN");
+            stats.explainedAt = LocalDateTime.now();
+        } catch (Exception e) {
+            log.debug("Failed to explain {}", command.getFirstKey(), e);
+        }
+    }
+    
+    private static String currentMethod() {
+        String method = CURRENT_METHOD.get();
+        if (method != null) {
+            return method;
+        }
+        // Direct MongoTemplate use: attribute the command to the first application frame
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.ecommerce.")
+                        && !frame.getClassName().startsWith(QueryProfiler.class.getPackageName()))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse(UNKNOWN_CALLER));
+    }
+    
+    private static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue collection = command.get(commandName);
+        return collection != null && collection.isString() ? collection.asString().getValue() : "";
+    }
+    
+    private static String shapeOf(String commandName, BsonDocument command) {
+        BsonDocument shape = new BsonDocument();
+        switch (commandName) {
+            case "find" -> {
+                putNormalized(shape, "filter", command.get("filter"));
+                if (command.containsKey("sort")) {
+                    shape.put("sort", command.get("sort"));
+                }
+            }
+            case "count", "findAndModify" -> putNormalized(shape, "query", command.get("query"));
+            case "distinct" -> {
+                shape.put("key", command.get("key", new BsonString("")));
+                putNormalized(shape, "query", command.get("query"));
+            }
+            case "aggregate" -> {
+                BsonArray pipeline = new BsonArray();
+                for (BsonValue stage : command.getArray("pipeline", new BsonArray())) {
+                    pipeline.add(stage.isDocument() ? normalizeStage(stage.asDocument()) : stage);
+                }
+                shape.put("pipeline", pipeline);
+            }
+            case "update" -> putNormalized(shape, "q", firstStatement(command, "updates", "q"));
+            case "delete" -> putNormalized(shape, "q", firstStatement(command, "deletes", "q"));
+            default -> {
+                // Inserts have no filter, latency is all that matters
+            }
+        }
+        return shape.toJson();
+    }
+    
+    private static BsonValue firstStatement(BsonDocument command, String field, String filterField) {
+        BsonArray statements = command.getArray(field, new BsonArray());
+        if (statements.isEmpty() || !statements.get(0).isDocument()) {
+            return null;
+        }
+        return statements.get(0).asDocument().get(filterField);
+    }
+    
+    private static void putNormalized(BsonDocument shape, String field, BsonValue value) {
+        if (value != null) {
+            shape.put(field, normalize(value));
+        }
+    }
+    
+    private static BsonDocument normalizeStage(BsonDocument stage) {
+        BsonDocument normalized = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : stage.entrySet()) {
+            normalized.put(entry.getKey(), LITERAL_STAGES.contains(entry.getKey()) ? entry.getValue() : normalize(entry.getValue()));
+        }
+        return normalized;
+    }
+    
+    private static BsonValue normalize(BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument normalized = new BsonDocument();
+            value.asDocument().forEach((field, nested) -> normalized.put(field, normalize(nested)));
+            return normalized;
+        }
+        if (value.isArray() && value.asArray().stream().anyMatch(BsonValue::isDocument)) {
+            // $and / $or clauses keep their structure, value lists ($in) collapse to "?"
+            BsonArray normalized = new BsonArray();
+            value.asArray().forEach(nested -> normalized.add(normalize(nested)));
+            return normalized;
+        }
+        return new BsonString("?");
+    }
+    
+    private static long returnedCount(BsonDocument response) {
+        BsonDocument cursor = response.getDocument("cursor", null);
+        if (cursor != null) {
+            return cursor.getArray("firstBatch", new BsonArray()).size();
+        }
+        if (response.containsKey("value")) {
+            return response.get("value").isNull() ? 0 : 1;
+        }
+        if (response.containsKey("values")) {
+            return response.getArray("values").size();
+        }
+        BsonValue n = response.get("n");
+        return n != null && n.isNumber() ? n.asNumber().longValue() : 0;
+    }
+    
+    private static Document findDocument(Object node, String field) {
+        if (node instanceof Document document) {
+            if (document.get(field) instanceof Document found) {
+                return found;
+            }
+            for (Object value : document.values()) {
+                Document found = findDocument(value, field);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Document found = findDocument(value, field);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+    
+    private static Long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+    
+    private record ShapeKey(String method, String collection, String command, String shape) {
+    }
+    
+    private record InFlight(ShapeStats stats, long startNanos) {
+    }
+    
+    private static final class ShapeStats {
+        
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder returned = new LongAdder();
+        private final AtomicLong nextExplainNanos = new AtomicLong(System.nanoTime());
+        
+        private volatile Long docsExamined;
+        private volatile Long keysExamined;
+        private volatile Long explainedReturned;
+        private volatile boolean collectionScan;
+        private volatile LocalDateTime explainedAt;
+        
+        void record(long nanos, long returnedCount) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            returned.add(returnedCount);
+        }
+        
+        boolean claimExplain(long intervalNanos) {
+            long now = System.nanoTime();
+            long next = nextExplainNanos.get();
+            return now - next >= 0 && nextExplainNanos.compareAndSet(next, now + intervalNanos);
+        }
+        
+        Map<String, Object> toMap(ShapeKey key) {
+            long count = calls.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("method", key.method());
+            result.put("collection", key.collection());
+            result.put("command", key.command());
+            result.put("shape", key.shape());
+            result.put("calls", count);
+            result.put("failures", failures.sum());
+            result.put("totalMillis", totalNanos.sum() / 1_000_000.0);
+            result.put("avgMillis", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+            result.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            result.put("avgReturned", count == 0 ? 0.0 : (double) returned.sum() / count);
+            result.put("docsExamined", docsExamined);
+            result.put("keysExamined", keysExamined);
+            result.put("docsReturned", explainedReturned);
+            result.put("examinedPerReturned", docsExamined == null ? null
+                    : (double) docsExamined / Math.max(1, explainedReturned == null ? 0 : explainedReturned));
+            result.put("collectionScan", collectionScan);
+            result.put("explainedAt", explainedAt);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.product.controller;
+
+import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.product.config.QueryProfiler;
+import com.ecommerce.product.service.OutboxRelay;
+import com.ecommerce.product.service.ProductCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/products/admin")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ProductAdminController {
+    
+    private final ProductCache productCache;
+    private final QueryProfiler queryProfiler;
+    private final OutboxRelay outboxRelay;
+    
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(productCache.getStats()));
+    }
+    
+    @DeleteMapping("/cache")
+    public ResponseEntity<ApiResponse<Object>> clearCache() {
+        productCache.invalidateAll();
+        return ResponseEntity.ok(ApiResponse.success(null, "Product cache cleared"));
+    }
+    
+    @GetMapping("/query-profile")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getQueryProfile(@RequestParam(defaultValue = "false") boolean collectionScansOnly) {
+        List<Map<String, Object>> profile = queryProfiler.getProfile();
+        if (collectionScansOnly) {
+            profile = profile.stream()
+                    .filter(shape -> Boolean.TRUE.equals(shape.get("collectionScan")))
+                    .toList();
+        }
+        return ResponseEntity.ok(ApiResponse.success(profile));
+    }
+    
+    @DeleteMapping("/query-profile")
+    public ResponseEntity<ApiResponse<Object>> resetQueryProfile() {
+        queryProfiler.reset();
+        return ResponseEntity.ok(ApiResponse.success(null, "Query profile reset"));
+    }
+    
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getOutboxStats() {
+        return ResponseEntity.ok(ApiResponse.success(outboxRelay.getStats()));
+    }
+}
@@ -1,18 +1,28 @@
 package com.ecommerce.product.controller;
 
 import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.common.dto.CursorPage;
+import com.ecommerce.common.dto.ProductBatchRequest;
+import com.ecommerce.product.dto.ProductImportResult;
 import com.ecommerce.product.dto.ProductRequest;
 import com.ecommerce.product.model.Product;
+import com.ecommerce.product.service.ProductImportService;
+import com.ecommerce.product.service.ProductListingSnapshots;
 import com.ecommerce.product.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -20,7 +30,11 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class ProductController {
     
+    private static final String VIEW_FULL = "full";
+    private static final String VIEW_SUMMARY = "summary";
+    
     private final ProductService productService;
+    private final ProductImportService productImportService;
     
     @PostMapping
     public ResponseEntity<ApiResponse<Product>> createProduct(
@@ -35,6 +49,22 @@ public class ProductController {
         }
     }
     
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ApiResponse<ProductImportResult>> importProducts(
+            HttpServletRequest httpRequest,
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestHeader("X-User-ID") String createdBy) {
+        try {
+            String contentType = httpRequest.getContentType();
+            ProductImportResult result = contentType != null && contentType.startsWith("text/csv")
+                    ? productImportService.importCsv(httpRequest.getInputStream(), tenantId, createdBy)
+                    : productImportService.importNdjson(httpRequest.getInputStream(), tenantId, createdBy);
+            return ResponseEntity.ok(ApiResponse.success(result, "Product import completed"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<Product>> updateProduct(
             @PathVariable String id,
@@ -83,6 +113,16 @@ public class ProductController {
         }
     }
     
+    @PostMapping("/public/batch")
+    public ResponseEntity<ApiResponse<List<Product>>> getProductsByIdsPublic(@Valid @RequestBody ProductBatchRequest request) {
+        try {
+            List<Product> products = productService.getProductsByIdsPublic(request.getIds());
+            return ResponseEntity.ok(ApiResponse.success(products));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping
     public ResponseEntity<ApiResponse<List<Product>>> getAllProducts(
             @RequestHeader("X-Tenant-ID") Long tenantId,
@@ -90,7 +130,7 @@ public class ProductController {
             @RequestParam(defaultValue = "20") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Product> products = productService.getAllProductsByTenant(tenantId, pageable);
+            Slice<Product> products = productService.getAllProductsByTenant(tenantId, pageable);
             return ResponseEntity.ok(ApiResponse.success(products.getContent()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -98,48 +138,91 @@ public class ProductController {
     }
     
     @GetMapping("/active")
-    public ResponseEntity<ApiResponse<List<Product>>> getActiveProducts(
+    public ResponseEntity<ApiResponse<List<?>>> getActiveProducts(
             @RequestHeader("X-Tenant-ID") Long tenantId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Product> products = productService.getActiveProductsByTenant(tenantId, pageable);
+            Slice<?> products = isSummaryView(view)
+                    ? productService.getActiveProductSummariesByTenant(tenantId, pageable)
+                    : productService.getActiveProductsByTenant(tenantId, pageable);
             return ResponseEntity.ok(ApiResponse.success(products.getContent()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    @GetMapping("/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Product>>> getAllProductsByCursor(
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage.checkSize(size);
+            CursorPage<Product> products = productService.getAllProductsByTenant(tenantId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(products));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/active/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Product>>> getActiveProductsByCursor(
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage.checkSize(size);
+            CursorPage<Product> products = productService.getActiveProductsByTenant(tenantId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(products));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/category/{category}")
-    public ResponseEntity<ApiResponse<List<Product>>> getProductsByCategory(
+    public ResponseEntity<?> getProductsByCategory(
             @PathVariable String category,
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = VIEW_FULL) String view,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Product> products = productService.getProductsByCategory(tenantId, category);
-            return ResponseEntity.ok(ApiResponse.success(products));
+            return snapshotResponse(productService.getProductsByCategorySnapshot(tenantId, category, isSummaryView(view)), ifNoneMatch);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
     @GetMapping("/featured")
-    public ResponseEntity<ApiResponse<List<Product>>> getFeaturedProducts(
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+    public ResponseEntity<?> getFeaturedProducts(
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = VIEW_FULL) String view,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Product> products = productService.getFeaturedProductsByTenant(tenantId);
-            return ResponseEntity.ok(ApiResponse.success(products));
+            return snapshotResponse(productService.getFeaturedProductsSnapshot(tenantId, isSummaryView(view)), ifNoneMatch);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<Product>>> searchProductsByName(
-            @RequestParam String name,
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+    public ResponseEntity<ApiResponse<List<?>>> searchProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String name,
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
-            List<Product> products = productService.searchProductsByName(tenantId, name);
+            String query = q != null ? q : name;
+            if (query == null || query.isBlank()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("Search query is required"));
+            }
+            List<?> products = isSummaryView(view)
+                    ? productService.searchProductSummaries(tenantId, query, page, size)
+                    : productService.searchProducts(tenantId, query, page, size);
             return ResponseEntity.ok(ApiResponse.success(products));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -159,17 +242,31 @@ public class ProductController {
     }
     
     @GetMapping("/tags")
-    public ResponseEntity<ApiResponse<List<Product>>> getProductsByTags(
+    public ResponseEntity<ApiResponse<List<?>>> getProductsByTags(
             @RequestParam List<String> tags,
-            @RequestHeader("X-Tenant-ID") Long tenantId) {
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = VIEW_FULL) String view) {
         try {
-            List<Product> products = productService.getProductsByTags(tenantId, tags);
+            List<?> products = isSummaryView(view)
+                    ? productService.getProductSummariesByTags(tenantId, tags)
+                    : productService.getProductsByTags(tenantId, tags);
             return ResponseEntity.ok(ApiResponse.success(products));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<Map<String, Map<String, Long>>>> getFacets(
+            @RequestHeader("X-Tenant-ID") Long tenantId,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(productService.getFacets(tenantId, limit)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/sku/{sku}")
     public ResponseEntity<ApiResponse<Product>> getProductBySku(
             @PathVariable String sku,
@@ -193,6 +290,15 @@ public class ProductController {
         }
     }
     
+    @GetMapping("/counts")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getProductCounts(@RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(productService.getProductCountsByTenant(tenantId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @PutMapping("/{id}/stock")
     public ResponseEntity<ApiResponse<Object>> updateStockQuantity(
             @PathVariable String id,
@@ -205,4 +311,58 @@ public class ProductController {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+    
+    @PostMapping("/{id}/stock/decrement")
+    public ResponseEntity<ApiResponse<Product>> decrementStock(
+            @PathVariable String id,
+            @RequestParam int quantity,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            if (quantity <= 0) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("Quantity must be positive"));
+            }
+            return productService.decrementStock(id, tenantId, quantity)
+                    .map(product -> ResponseEntity.ok(ApiResponse.success(product, "Stock decremented successfully")))
+                    .orElse(ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(ApiResponse.error("Insufficient stock or product not found", "INSUFFICIENT_STOCK")));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/{id}/stock/increment")
+    public ResponseEntity<ApiResponse<Product>> incrementStock(
+            @PathVariable String id,
+            @RequestParam int quantity,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            if (quantity <= 0) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("Quantity must be positive"));
+            }
+            Product product = productService.incrementStock(id, tenantId, quantity);
+            return ResponseEntity.ok(ApiResponse.success(product, "Stock incremented successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    private static ResponseEntity<?> snapshotResponse(ProductListingSnapshots.Snapshot snapshot, String ifNoneMatch) {
+        if (snapshot.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .body(snapshot.body());
+    }
+    
+    private static boolean isSummaryView(String view) {
+        if (VIEW_SUMMARY.equalsIgnoreCase(view)) {
+            return true;
+        }
+        if (!VIEW_FULL.equalsIgnoreCase(view)) {
+            throw new IllegalArgumentException("Unknown view: " + view);
+        }
+        return false;
+    }
+}
\ No newline at end of file
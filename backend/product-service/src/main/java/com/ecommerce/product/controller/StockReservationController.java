@@ -0,0 +1,71 @@
+package com.ecommerce.product.controller;
+
+import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.common.dto.StockReservationRequest;
+import com.ecommerce.common.dto.StockReservationResult;
+import com.ecommerce.product.service.StockReservationService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/products/stock/reservations")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class StockReservationController {
+    
+    private final StockReservationService stockReservationService;
+    
+    @PostMapping
+    public ResponseEntity<ApiResponse<StockReservationResult>> reserveStock(
+            @Valid @RequestBody StockReservationRequest request,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            StockReservationResult result = stockReservationService.reserve(request, tenantId);
+            if (!result.isReserved()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(failure(result));
+            }
+            return ResponseEntity.ok(ApiResponse.success(result, result.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/{reservationId}/release")
+    public ResponseEntity<ApiResponse<StockReservationResult>> releaseStock(
+            @PathVariable String reservationId,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            StockReservationResult result = stockReservationService.release(reservationId, tenantId);
+            return ResponseEntity.ok(ApiResponse.success(result, result.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/{reservationId}")
+    public ResponseEntity<ApiResponse<StockReservationResult>> getReservation(
+            @PathVariable String reservationId,
+            @RequestHeader("X-Tenant-ID") Long tenantId) {
+        try {
+            StockReservationResult result = stockReservationService.getReservation(reservationId, tenantId);
+            return ResponseEntity.ok(ApiResponse.success(result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    private static ApiResponse<StockReservationResult> failure(StockReservationResult result) {
+        return ApiResponse.<StockReservationResult>builder()
+                .success(false)
+                .data(result)
+                .message(result.getMessage())
+                .errorCode("INSUFFICIENT_STOCK")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResult {
+    
+    private long totalRows;
+    
+    private long imported;
+    
+    private long failed;
+    
+    private long batches;
+    
+    private long durationMillis;
+    
+    private double rowsPerSecond;
+    
+    private List<RowError> errors;
+    
+    private boolean errorsTruncated;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String sku;
+        private String message;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecommerce.product.dto;
+
+import com.ecommerce.product.model.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Card fields for grid and listing pages; read with a Mongo projection so description,
+ * attributes, dimensions and all but the first image never leave the database.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductSummary {
+    
+    public static final String[] FIELDS = {
+        "tenantId", "name", "category", "brand", "sku", "price", "compareAtPrice",
+        "stockQuantity", "unit", "isActive", "isFeatured"
+    };
+    
+    private String id;
+    
+    private Long tenantId;
+    
+    private String name;
+    
+    private String category;
+    
+    private String brand;
+    
+    private String sku;
+    
+    private BigDecimal price;
+    
+    private BigDecimal compareAtPrice;
+    
+    private Integer stockQuantity;
+    
+    private String unit;
+    
+    private List<String> images;
+    
+    private Boolean isActive;
+    
+    private Boolean isFeatured;
+    
+    public static ProductSummary from(Product product) {
+        return ProductSummary.builder()
+                .id(product.getId())
+                .tenantId(product.getTenantId())
+                .name(product.getName())
+                .category(product.getCategory())
+                .brand(product.getBrand())
+                .sku(product.getSku())
+                .price(product.getPrice())
+                .compareAtPrice(product.getCompareAtPrice())
+                .stockQuantity(product.getStockQuantity())
+                .unit(product.getUnit())
+                .images(product.getImages() == null || product.getImages().isEmpty()
+                        ? product.getImages() : product.getImages().subList(0, 1))
+                .isActive(product.getIsActive())
+                .isFeatured(product.getIsFeatured())
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event waiting to be published to Kafka, deleted by the relay once Kafka has
+ * acknowledged it. The payload is stored as serialized JSON. Records are keyed by the
+ * aggregate id and carry the event type, if any, in a header.
+ */
+@Document(collection = "outbox_events")
+@CompoundIndex(name = "created_idx", def = "{'createdAt': 1, '_id': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    private String id;
+    
+    private String aggregateId;
+    
+    private String topic;
+    
+    private String eventType;
+    
+    private String payload;
+    
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product event recorded inside the product document by the same write that causes it,
+ * so the event exists if and only if the write happened. The relay publishes it with the
+ * product as it is at that moment and pulls it from the document.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingEvent {
+    
+    public static final String PRODUCT_CREATED = "product.created";
+    public static final String PRODUCT_UPDATED = "product.updated";
+    public static final String STOCK_UPDATED = "product.stock.updated";
+    
+    private String eventId;
+    
+    private String eventType;
+    
+    private LocalDateTime createdAt;
+    
+    public static PendingEvent of(String eventType) {
+        return new PendingEvent(new ObjectId().toHexString(), eventType, LocalDateTime.now());
+    }
+}
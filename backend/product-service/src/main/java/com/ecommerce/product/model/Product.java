@@ -1,12 +1,15 @@
 package com.ecommerce.product.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -14,6 +17,14 @@ import java.util.List;
 import java.util.Map;
 
 @Document(collection = "products")
+@CompoundIndexes({
+    @CompoundIndex(name = "tenant_created_idx", def = "{'tenantId': 1, 'createdAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "tenant_active_created_idx", def = "{'tenantId': 1, 'isActive': 1, 'createdAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "tenant_category_idx", def = "{'tenantId': 1, 'category': 1}"),
+    @CompoundIndex(name = "tenant_featured_idx", def = "{'tenantId': 1, 'isFeatured': 1}"),
+    @CompoundIndex(name = "tenant_tags_idx", def = "{'tenantId': 1, 'tags': 1}"),
+    @CompoundIndex(name = "pending_events_idx", def = "{'pendingEvents.createdAt': 1}", sparse = true)
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -69,4 +80,12 @@ public class Product {
     private String createdBy;
     
     private String updatedBy;
+    
+    // Stock reservations that have taken stock from this product and are not settled yet
+    @JsonIgnore
+    private List<String> pendingReservations;
+    
+    // Events of writes to this product that the outbox relay has not published yet
+    @JsonIgnore
+    private List<PendingEvent> pendingEvents;
 } 
\ No newline at end of file
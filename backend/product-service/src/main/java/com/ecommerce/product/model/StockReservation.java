@@ -0,0 +1,41 @@
+package com.ecommerce.product.model;
+
+import com.ecommerce.common.dto.StockReservationRequest;
+import com.ecommerce.common.dto.StockReservationResult;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Document(collection = "stock_reservations")
+@CompoundIndex(name = "status_updated_idx", def = "{'status': 1, 'updatedAt': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+    
+    @Id
+    private String id;
+    
+    private Long tenantId;
+    
+    private List<StockReservationRequest.Item> items;
+    
+    private StockReservationResult.Status status;
+    
+    private String failedProductId;
+    
+    // Set once a rollback has started; the reservation can then only end up FAILED
+    private Boolean rollingBack;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+}
@@ -1,25 +1,26 @@
 package com.ecommerce.product.repository;
 
 import com.ecommerce.product.model.Product;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
     
     List<Product> findByTenantId(Long tenantId);
     
-    Page<Product> findByTenantId(Long tenantId, Pageable pageable);
+    Slice<Product> findByTenantId(Long tenantId, Pageable pageable);
     
     List<Product> findByTenantIdAndIsActiveTrue(Long tenantId);
     
-    Page<Product> findByTenantIdAndIsActiveTrue(Long tenantId, Pageable pageable);
+    Slice<Product> findByTenantIdAndIsActiveTrue(Long tenantId, Pageable pageable);
     
     List<Product> findByTenantIdAndCategory(Long tenantId, String category);
     
@@ -38,5 +39,8 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     
     boolean existsByTenantIdAndSku(Long tenantId, String sku);
     
+    @Query(value = "{'tenantId': ?0, 'sku': {$in: ?1}}", fields = "{'sku': 1}")
+    List<Product> findSkusByTenantIdAndSkuIn(Long tenantId, Collection<String> skus);
+    
     long countByTenantId(Long tenantId);
 } 
\ No newline at end of file
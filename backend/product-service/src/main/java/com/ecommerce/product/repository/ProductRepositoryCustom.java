@@ -0,0 +1,37 @@
+package com.ecommerce.product.repository;
+
+import com.ecommerce.common.dto.PageCursor;
+import com.ecommerce.product.dto.ProductSummary;
+import com.ecommerce.product.model.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    
+    List<Product> findByTenantIdAfter(Long tenantId, boolean activeOnly, PageCursor after, int limit);
+    
+    Slice<ProductSummary> findSummariesByTenantIdAndIsActiveTrue(Long tenantId, Pageable pageable);
+    
+    List<ProductSummary> findSummariesByTenantIdAndCategory(Long tenantId, String category);
+    
+    List<ProductSummary> findSummariesByTenantIdAndIsFeaturedTrue(Long tenantId);
+    
+    List<ProductSummary> findSummariesByTenantIdAndTagsIn(Long tenantId, List<String> tags);
+    
+    List<ProductSummary> findSummariesByIdIn(Collection<String> ids);
+    
+    Product adjustStock(String productId, Long tenantId, int delta);
+    
+    Product updateDetails(String productId, Long tenantId, Product details, Integer stockRead);
+    
+    Product setStock(String productId, Long tenantId, Integer stockRead, int quantity);
+    
+    Product takeReservedStock(String productId, Long tenantId, int quantity, String reservationId);
+    
+    Product returnReservedStock(String productId, Long tenantId, int quantity, String reservationId);
+    
+    void clearReservation(Collection<String> productIds, Long tenantId, String reservationId);
+}
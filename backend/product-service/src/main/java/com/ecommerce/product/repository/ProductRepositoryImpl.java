@@ -0,0 +1,194 @@
+package com.ecommerce.product.repository;
+
+import com.ecommerce.common.dto.PageCursor;
+import com.ecommerce.product.dto.ProductSummary;
+import com.ecommerce.product.model.PendingEvent;
+import com.ecommerce.product.model.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    
+    private static final String COLLECTION = "products";
+    private static final String PENDING_RESERVATIONS = "pendingReservations";
+    private static final String PENDING_EVENTS = "pendingEvents";
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public List<Product> findByTenantIdAfter(Long tenantId, boolean activeOnly, PageCursor after, int limit) {
+        Criteria criteria = Criteria.where("tenantId").is(tenantId);
+        if (activeOnly) {
+            criteria = criteria.and("isActive").is(true);
+        }
+        if (after != null) {
+            // Seek past the last row of the previous page: (createdAt, _id) < (cursor.createdAt, cursor.id)
+            criteria = criteria.orOperator(
+                    Criteria.where("createdAt").lt(after.createdAt()),
+                    Criteria.where("createdAt").is(after.createdAt()).and("_id").lt(after.id()));
+        }
+        
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Product.class);
+    }
+    
+    @Override
+    public Slice<ProductSummary> findSummariesByTenantIdAndIsActiveTrue(Long tenantId, Pageable pageable) {
+        Query query = new Query(Criteria.where("tenantId").is(tenantId).and("isActive").is(true))
+                .with(pageable)
+                .limit(pageable.getPageSize() + 1);
+        List<ProductSummary> summaries = findSummaries(query);
+        boolean hasNext = summaries.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? summaries.subList(0, pageable.getPageSize()) : summaries, pageable, hasNext);
+    }
+    
+    @Override
+    public List<ProductSummary> findSummariesByTenantIdAndCategory(Long tenantId, String category) {
+        return findSummaries(new Query(Criteria.where("tenantId").is(tenantId).and("category").is(category)));
+    }
+    
+    @Override
+    public List<ProductSummary> findSummariesByTenantIdAndIsFeaturedTrue(Long tenantId) {
+        return findSummaries(new Query(Criteria.where("tenantId").is(tenantId).and("isFeatured").is(true)));
+    }
+    
+    @Override
+    public List<ProductSummary> findSummariesByTenantIdAndTagsIn(Long tenantId, List<String> tags) {
+        return findSummaries(new Query(Criteria.where("tenantId").is(tenantId).and("tags").in(tags)));
+    }
+    
+    @Override
+    public List<ProductSummary> findSummariesByIdIn(Collection<String> ids) {
+        return findSummaries(new Query(Criteria.where("_id").in(ids)));
+    }
+    
+    @Override
+    public Product adjustStock(String productId, Long tenantId, int delta) {
+        Criteria criteria = Criteria.where("_id").is(productId).and("tenantId").is(tenantId);
+        if (delta < 0) {
+            // Guard and decrement in one statement so concurrent checkouts can never oversell
+            criteria = criteria.and("stockQuantity").gte(-delta);
+        }
+        Update update = new Update()
+                .inc("stockQuantity", delta)
+                .set("updatedAt", LocalDateTime.now())
+                .push(PENDING_EVENTS, PendingEvent.of(PendingEvent.STOCK_UPDATED));
+        return mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+    
+    /**
+     * Writes the editable fields of a product and nothing else, so stock taken concurrently
+     * and the reservation tags survive. A changed stock quantity is written only if the
+     * stock is still what the caller read; null if it was not, or the product is gone.
+     * <p>
+     * Like every write here that changes what consumers see, it records its event in the
+     * document in the same statement; see {@link PendingEvent}.
+     */
+    @Override
+    public Product updateDetails(String productId, Long tenantId, Product details, Integer stockRead) {
+        Criteria criteria = Criteria.where("_id").is(productId).and("tenantId").is(tenantId);
+        Update update = new Update()
+                .set("name", details.getName())
+                .set("description", details.getDescription())
+                .set("category", details.getCategory())
+                .set("brand", details.getBrand())
+                .set("sku", details.getSku())
+                .set("price", details.getPrice())
+                .set("compareAtPrice", details.getCompareAtPrice())
+                .set("unit", details.getUnit())
+                .set("images", details.getImages())
+                .set("attributes", details.getAttributes())
+                .set("tags", details.getTags())
+                .set("isActive", details.getIsActive())
+                .set("isFeatured", details.getIsFeatured())
+                .set("weight", details.getWeight())
+                .set("weightUnit", details.getWeightUnit())
+                .set("dimensions", details.getDimensions())
+                .set("updatedAt", details.getUpdatedAt())
+                .set("updatedBy", details.getUpdatedBy())
+                .push(PENDING_EVENTS, PendingEvent.of(PendingEvent.PRODUCT_UPDATED));
+        if (!Objects.equals(details.getStockQuantity(), stockRead)) {
+            criteria = criteria.and("stockQuantity").is(stockRead);
+            update.set("stockQuantity", details.getStockQuantity());
+        }
+        return mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+    
+    @Override
+    public Product setStock(String productId, Long tenantId, Integer stockRead, int quantity) {
+        // Conditional on the stock read, so a concurrent reservation is never overwritten
+        Criteria criteria = Criteria.where("_id").is(productId)
+                .and("tenantId").is(tenantId)
+                .and("stockQuantity").is(stockRead);
+        Update update = new Update()
+                .set("stockQuantity", quantity)
+                .set("updatedAt", LocalDateTime.now())
+                .push(PENDING_EVENTS, PendingEvent.of(PendingEvent.STOCK_UPDATED));
+        return mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+    
+    @Override
+    public Product takeReservedStock(String productId, Long tenantId, int quantity, String reservationId) {
+        // The reservation id is recorded in the same statement, so a rollback knows exactly which lines were taken
+        Criteria criteria = Criteria.where("_id").is(productId)
+                .and("tenantId").is(tenantId)
+                .and("stockQuantity").gte(quantity)
+                .and(PENDING_RESERVATIONS).ne(reservationId);
+        Update update = new Update()
+                .inc("stockQuantity", -quantity)
+                .addToSet(PENDING_RESERVATIONS, reservationId)
+                .set("updatedAt", LocalDateTime.now())
+                .push(PENDING_EVENTS, PendingEvent.of(PendingEvent.STOCK_UPDATED));
+        return mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+    
+    @Override
+    public Product returnReservedStock(String productId, Long tenantId, int quantity, String reservationId) {
+        // Matches only while the reservation still holds stock here, so stock is returned at most once
+        Criteria criteria = Criteria.where("_id").is(productId)
+                .and("tenantId").is(tenantId)
+                .and(PENDING_RESERVATIONS).is(reservationId);
+        Update update = new Update()
+                .inc("stockQuantity", quantity)
+                .pull(PENDING_RESERVATIONS, reservationId)
+                .set("updatedAt", LocalDateTime.now())
+                .push(PENDING_EVENTS, PendingEvent.of(PendingEvent.STOCK_UPDATED));
+        return mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+    
+    @Override
+    public void clearReservation(Collection<String> productIds, Long tenantId, String reservationId) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(productIds).and("tenantId").is(tenantId)
+                        .and(PENDING_RESERVATIONS).is(reservationId)),
+                new Update().pull(PENDING_RESERVATIONS, reservationId),
+                Product.class);
+    }
+    
+    private List<ProductSummary> findSummaries(Query query) {
+        // Only card fields and the first image are read from Mongo
+        query.fields().include(ProductSummary.FIELDS).slice("images", 1);
+        return mongoTemplate.find(query, ProductSummary.class, COLLECTION);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,305 @@
+package com.ecommerce.product.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.product.model.OutboxEvent;
+import com.ecommerce.product.model.PendingEvent;
+import com.ecommerce.product.model.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains pending events to Kafka in batches. Only the instance holding the relay lease
+ * publishes. Records are keyed by aggregate id, so a product's events share a partition,
+ * and the event type travels in the {@value #EVENT_TYPE_HEADER} header.
+ * <p>
+ * Events come from two places. Product writes record a {@link PendingEvent} inside the
+ * product document in the same statement, and those are published with the product as
+ * it is when sent, then pulled from the document. Everything else is in the outbox
+ * collection. A product deletion cannot record its event in a document that is going
+ * away, so it is written to the outbox before the delete and held back while the product
+ * still exists; one still unconfirmed after {@code app.outbox.confirm-timeout} belongs
+ * to a delete that never happened and is dropped.
+ * <p>
+ * A batch is sent in write order in windows holding at most one event per aggregate, and
+ * sending stops after a window with a failure, so a failed event is never overtaken by a
+ * later event of its product. Delivery is at least once.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    
+    public static final String EVENT_TYPE_HEADER = "event-type";
+    public static final String PRODUCT_EVENTS_TOPIC = "product-events";
+    public static final String PRODUCT_DELETED = "product.deleted";
+    
+    private static final String LOCKS_COLLECTION = "outbox_locks";
+    private static final String PRODUCTS_COLLECTION = "products";
+    private static final String LOCK_ID = "product_outbox_relay";
+    private static final String PENDING_EVENTS = "pendingEvents";
+    
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration leaseDuration;
+    private final Duration confirmTimeout;
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    private final LongAdder published = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile double lastBatchEventsPerSecond;
+    private volatile long lastBatchMillis;
+    
+    public OutboxRelay(MongoTemplate mongoTemplate,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${app.outbox.batch-size:500}") int batchSize,
+                       @Value("${app.outbox.send-timeout:10s}") Duration sendTimeout,
+                       @Value("${app.outbox.lease:30s}") Duration leaseDuration,
+                       @Value("${app.outbox.confirm-timeout:30s}") Duration confirmTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.leaseDuration = leaseDuration;
+        this.confirmTimeout = confirmTimeout;
+    }
+    
+    /**
+     * Runs every linger interval and keeps going while batches come back full, so events
+     * wait at most about one linger interval when the relay is keeping up.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.linger-ms:50}")
+    public void relay() {
+        try {
+            if (!acquireLease()) {
+                return;
+            }
+            boolean more;
+            do {
+                more = publishBatch();
+            } while (more && acquireLease());
+        } catch (Exception e) {
+            failures.increment();
+            log.error("Outbox relay failed", e);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Query oldest = new Query().with(Sort.by("createdAt", "_id")).limit(1);
+        OutboxEvent oldestEvent = mongoTemplate.findOne(oldest, OutboxEvent.class);
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", mongoTemplate.estimatedCount(OutboxEvent.class));
+        stats.put("pendingInProducts", mongoTemplate.count(withPendingEvents(), Product.class));
+        stats.put("lagMillis", oldestEvent == null ? 0L
+                : Duration.between(oldestEvent.getCreatedAt(), LocalDateTime.now()).toMillis());
+        stats.put("published", published.sum());
+        stats.put("batches", batches.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastBatchMillis", lastBatchMillis);
+        stats.put("lastBatchEventsPerSecond", lastBatchEventsPerSecond);
+        return stats;
+    }
+    
+    private boolean acquireLease() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("_id").is(LOCK_ID)
+                .orOperator(Criteria.where("owner").is(instanceId), Criteria.where("expiresAt").lt(now)));
+        Update update = new Update().set("owner", instanceId).set("expiresAt", now.plus(leaseDuration));
+        try {
+            return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, LOCKS_COLLECTION) != null;
+        } catch (DuplicateKeyException e) {
+            // Held by another instance; the upsert collided with its lock document
+            return false;
+        }
+    }
+    
+    /**
+     * Publishes one batch from each source. Returns true if either source filled its batch
+     * and everything was sent, so the caller should go again.
+     */
+    private boolean publishBatch() {
+        List<Product> products = mongoTemplate.find(withPendingEvents().limit(batchSize), Product.class);
+        List<OutboxEvent> outboxEvents = mongoTemplate.find(
+                new Query().with(Sort.by("createdAt", "_id")).limit(batchSize), OutboxEvent.class);
+        if (products.isEmpty() && outboxEvents.isEmpty()) {
+            return false;
+        }
+        
+        List<Outgoing> events = new ArrayList<>();
+        for (Product product : products) {
+            JsonNode payload = objectMapper.valueToTree(product);
+            for (PendingEvent event : product.getPendingEvents()) {
+                events.add(new Outgoing(product.getId(), PRODUCT_EVENTS_TOPIC, event.getEventType(), payload,
+                        null, event.getEventId()));
+            }
+        }
+        events.addAll(confirmed(outboxEvents));
+        
+        long start = System.nanoTime();
+        List<Outgoing> sent = new ArrayList<>(events.size());
+        int next = 0;
+        boolean failed = false;
+        while (next < events.size() && !failed) {
+            // Events of different aggregates are in flight together, a second event of one waits for the next window
+            Set<String> aggregates = new HashSet<>();
+            List<Outgoing> window = new ArrayList<>();
+            List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>();
+            while (next < events.size() && aggregates.add(events.get(next).aggregateId())) {
+                Outgoing event = events.get(next++);
+                window.add(event);
+                sends.add(kafkaTemplate.send(event.toRecord()));
+            }
+            for (int i = 0; i < window.size(); i++) {
+                try {
+                    sends.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    sent.add(window.get(i));
+                } catch (Exception e) {
+                    // Nothing after this window is sent, so the product's later events wait for this one
+                    failures.increment();
+                    failed = true;
+                    log.warn("Failed to publish {} event for {}, retrying from there",
+                            window.get(i).eventType(), window.get(i).aggregateId(), e);
+                }
+            }
+        }
+        
+        acknowledge(sent);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        published.add(sent.size());
+        batches.increment();
+        lastBatchMillis = millis;
+        lastBatchEventsPerSecond = sent.size() * 1000.0 / Math.max(1, millis);
+        return !failed && (products.size() == batchSize || outboxEvents.size() == batchSize);
+    }
+    
+    /**
+     * The outbox events that can be sent now, in order. A product.deleted event waits while
+     * its product still exists, and so do the later outbox events of that product.
+     */
+    private List<Outgoing> confirmed(List<OutboxEvent> outboxEvents) {
+        Set<String> deleted = new HashSet<>();
+        for (OutboxEvent event : outboxEvents) {
+            if (PRODUCT_DELETED.equals(event.getEventType())) {
+                deleted.add(event.getAggregateId());
+            }
+        }
+        Set<String> stillThere = new HashSet<>();
+        if (!deleted.isEmpty()) {
+            Query existing = new Query(Criteria.where("_id").in(deleted));
+            existing.fields().include("_id");
+            mongoTemplate.find(existing, Document.class, PRODUCTS_COLLECTION)
+                    .forEach(product -> stillThere.add(product.get("_id").toString()));
+        }
+        
+        LocalDateTime abandonedBefore = LocalDateTime.now().minus(confirmTimeout);
+        List<String> abandoned = new ArrayList<>();
+        Set<String> held = new HashSet<>();
+        List<Outgoing> ready = new ArrayList<>(outboxEvents.size());
+        for (OutboxEvent event : outboxEvents) {
+            if (held.contains(event.getAggregateId())) {
+                continue;
+            }
+            if (PRODUCT_DELETED.equals(event.getEventType()) && stillThere.contains(event.getAggregateId())) {
+                if (event.getCreatedAt().isBefore(abandonedBefore)) {
+                    log.warn("Dropping product.deleted event for {}: the product was never deleted", event.getAggregateId());
+                    abandoned.add(event.getId());
+                } else {
+                    held.add(event.getAggregateId());
+                }
+                continue;
+            }
+            try {
+                ready.add(new Outgoing(event.getAggregateId(), event.getTopic(), event.getEventType(),
+                        objectMapper.readTree(event.getPayload()), event.getId(), null));
+            } catch (IOException e) {
+                log.error("Dropping unreadable outbox event {}", event.getId(), e);
+                abandoned.add(event.getId());
+            }
+        }
+        if (!abandoned.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(abandoned)), OutboxEvent.class);
+        }
+        return ready;
+    }
+    
+    private void acknowledge(List<Outgoing> sent) {
+        List<String> outboxIds = new ArrayList<>();
+        Map<String, List<String>> productEvents = new LinkedHashMap<>();
+        for (Outgoing event : sent) {
+            if (event.outboxId() != null) {
+                outboxIds.add(event.outboxId());
+            } else {
+                productEvents.computeIfAbsent(event.aggregateId(), id -> new ArrayList<>()).add(event.pendingEventId());
+            }
+        }
+        if (!outboxIds.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(outboxIds)), OutboxEvent.class);
+        }
+        if (productEvents.isEmpty()) {
+            return;
+        }
+        BulkOperations pulls = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        productEvents.forEach((productId, eventIds) -> pulls.updateOne(
+                new Query(Criteria.where("_id").is(productId)),
+                new Update().pull(PENDING_EVENTS, new Document("eventId", new Document("$in", eventIds)))));
+        pulls.execute();
+        // Drop emptied arrays so the products leave the sparse pending-events index; a write since keeps its array
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(productEvents.keySet()).and(PENDING_EVENTS).size(0)),
+                new Update().unset(PENDING_EVENTS), Product.class);
+    }
+    
+    private static Query withPendingEvents() {
+        return new Query(Criteria.where(PENDING_EVENTS + ".createdAt").exists(true));
+    }
+    
+    private record Outgoing(String aggregateId, String topic, String eventType, JsonNode payload,
+                            String outboxId, String pendingEventId) {
+        
+        ProducerRecord<String, Object> toRecord() {
+            ProducerRecord<String, Object> record = new ProducerRecord<>(topic, aggregateId, payload);
+            if (eventType != null) {
+                record.headers().add(EVENT_TYPE_HEADER, eventType.getBytes(StandardCharsets.UTF_8));
+            }
+            return record;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ecommerce.product.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.ecommerce.product.model.OutboxEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Records events that cannot travel inside a product document in the outbox collection:
+ * stock reservation replies, and product deletions, which are recorded before the delete.
+ * The request path costs one local insert instead of a Kafka round trip.
+ * {@link OutboxRelay} publishes them.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    
+    public void append(String topic, String eventType, String aggregateId, Object payload) {
+        try {
+            mongoTemplate.insert(OutboxEvent.builder()
+                    .aggregateId(aggregateId)
+                    .topic(topic)
+                    .eventType(eventType)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + topic + " event", e);
+        }
+    }
+}
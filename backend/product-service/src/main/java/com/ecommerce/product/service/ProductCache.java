@@ -0,0 +1,133 @@
+package com.ecommerce.product.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Read-through cache for single product lookups, bounded by an estimate of the
+ * retained size of each product (W-TinyLFU eviction). Entries are invalidated by
+ * {@link ProductService} on writes and by {@link ProductEventListener} for writes
+ * made on other instances.
+ */
+@Component
+public class ProductCache {
+    
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 8;
+    private static final int PRODUCT_BASE_SIZE = 256;
+    
+    private final ProductRepository productRepository;
+    private final Cache<String, Product> cache;
+    
+    public ProductCache(ProductRepository productRepository,
+                        @Value("${app.product-cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                        @Value("${app.product-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.productRepository = productRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String id, Product product) -> estimateSize(product))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+    
+    public Optional<Product> get(String productId) {
+        // Concurrent misses for the same id share a single Mongo load
+        return Optional.ofNullable(cache.get(productId, id -> productRepository.findById(id).orElse(null)));
+    }
+    
+    /**
+     * Cached products for the given ids, in request order. All misses are loaded with a
+     * single {@code $in} query; ids that do not exist are left out.
+     */
+    public List<Product> getAll(Collection<String> productIds) {
+        Map<String, Product> found = cache.getAll(new LinkedHashSet<>(productIds), missing -> {
+            Map<String, Product> loaded = new HashMap<>();
+            productRepository.findAllById(List.copyOf(missing)).forEach(product -> loaded.put(product.getId(), product));
+            return loaded;
+        });
+        return List.copyOf(found.values());
+    }
+    
+    public void invalidate(String productId) {
+        if (productId != null) {
+            cache.invalidate(productId);
+        }
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("weightBytes", cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("evictionWeightBytes", stats.evictionWeight());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+    
+    static int estimateSize(Product product) {
+        long size = PRODUCT_BASE_SIZE;
+        size += sizeOf(product.getId()) + sizeOf(product.getName()) + sizeOf(product.getDescription())
+                + sizeOf(product.getCategory()) + sizeOf(product.getBrand()) + sizeOf(product.getSku())
+                + sizeOf(product.getUnit()) + sizeOf(product.getWeightUnit())
+                + sizeOf(product.getCreatedBy()) + sizeOf(product.getUpdatedBy());
+        size += sizeOf(product.getPrice()) + sizeOf(product.getCompareAtPrice());
+        size += sizeOfStrings(product.getImages()) + sizeOfStrings(product.getTags());
+        if (product.getAttributes() != null) {
+            for (Map.Entry<String, Object> entry : product.getAttributes().entrySet()) {
+                size += 3 * OBJECT_OVERHEAD + sizeOf(entry.getKey()) + sizeOf(String.valueOf(entry.getValue()));
+            }
+        }
+        if (product.getDimensions() != null) {
+            for (Map.Entry<String, String> entry : product.getDimensions().entrySet()) {
+                size += 3 * OBJECT_OVERHEAD + sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+    
+    private static long sizeOf(String value) {
+        return value == null ? 0 : OBJECT_OVERHEAD + 24 + value.length();
+    }
+    
+    private static long sizeOf(BigDecimal value) {
+        return value == null ? 0 : OBJECT_OVERHEAD + 32;
+    }
+    
+    private static long sizeOfStrings(Collection<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        long size = OBJECT_OVERHEAD + (long) values.size() * REFERENCE_SIZE;
+        for (String value : values) {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+}
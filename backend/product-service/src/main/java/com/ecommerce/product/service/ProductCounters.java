@@ -0,0 +1,220 @@
+package com.ecommerce.product.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-tenant product counts (total, active, featured, out of stock) kept in memory.
+ * {@link ProductService} adjusts them on every write and they are periodically reconciled
+ * against Mongo, which also picks up writes made by other instances.
+ */
+@Component
+@Slf4j
+public class ProductCounters {
+    
+    public static final String TOTAL = "total";
+    public static final String ACTIVE = "active";
+    public static final String FEATURED = "featured";
+    public static final String OUT_OF_STOCK = "outOfStock";
+    
+    private final MongoTemplate mongoTemplate;
+    private final ProductRepository productRepository;
+    
+    private final Map<Long, TenantCounters> tenants = new ConcurrentHashMap<>();
+    
+    private volatile boolean ready = false;
+    
+    public ProductCounters(MongoTemplate mongoTemplate, ProductRepository productRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.productRepository = productRepository;
+    }
+    
+    public long getTotal(Long tenantId) {
+        if (!ready) {
+            return productRepository.countByTenantId(tenantId);
+        }
+        TenantCounters counters = tenants.get(tenantId);
+        return counters == null ? 0 : counters.total.sum();
+    }
+    
+    public Map<String, Long> getCounts(Long tenantId) {
+        TenantCounters counters = ready ? tenants.get(tenantId) : countTenant(tenantId);
+        if (counters == null) {
+            counters = new TenantCounters();
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put(TOTAL, counters.total.sum());
+        counts.put(ACTIVE, counters.active.sum());
+        counts.put(FEATURED, counters.featured.sum());
+        counts.put(OUT_OF_STOCK, counters.outOfStock.sum());
+        return counts;
+    }
+    
+    public void onCreated(Product product) {
+        adjust(product.getTenantId(), null, State.of(product));
+    }
+    
+    public void onUpdated(State previous, Product product) {
+        adjust(product.getTenantId(), previous, State.of(product));
+    }
+    
+    public void onDeleted(Product product) {
+        adjust(product.getTenantId(), State.of(product), null);
+    }
+    
+    public void onStockChanged(Product product, Integer previousStock) {
+        State current = State.of(product);
+        adjust(product.getTenantId(), new State(current.active(), current.featured(), isOutOfStock(previousStock)), current);
+    }
+    
+    /**
+     * Replaces the counters with a fresh count from Mongo. Adjustments made while the
+     * aggregation runs are carried over, so a concurrent write is never lost (at worst it
+     * is counted twice until the next reconcile).
+     */
+    @Scheduled(fixedDelayString = "${app.product-counters.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Long, long[]> before = new HashMap<>();
+        tenants.forEach((tenantId, counters) -> before.put(tenantId, counters.values()));
+        
+        Map<Long, long[]> counted;
+        try {
+            counted = countAll();
+        } catch (Exception e) {
+            log.error("Failed to reconcile product counters", e);
+            return;
+        }
+        
+        counted.forEach((tenantId, counts) -> tenants.computeIfAbsent(tenantId, id -> new TenantCounters()));
+        tenants.forEach((tenantId, counters) -> counters.reconcile(
+                before.getOrDefault(tenantId, new long[4]),
+                counted.getOrDefault(tenantId, new long[4])));
+        
+        if (!ready) {
+            ready = true;
+            log.info("Loaded product counters for {} tenants in {} ms", tenants.size(), System.currentTimeMillis() - start);
+        }
+    }
+    
+    private void adjust(Long tenantId, State previous, State current) {
+        if (tenantId == null) {
+            return;
+        }
+        TenantCounters counters = tenants.computeIfAbsent(tenantId, id -> new TenantCounters());
+        if (previous != null) {
+            counters.add(previous, -1);
+        }
+        if (current != null) {
+            counters.add(current, 1);
+        }
+    }
+    
+    private TenantCounters countTenant(Long tenantId) {
+        // Only used until the first reconcile has finished
+        long[] counts = count(Criteria.where("tenantId").is(tenantId)).getOrDefault(tenantId, new long[4]);
+        TenantCounters counters = new TenantCounters();
+        counters.reconcile(new long[4], counts);
+        return counters;
+    }
+    
+    private Map<Long, long[]> countAll() {
+        return count(new Criteria());
+    }
+    
+    private Map<Long, long[]> count(Criteria criteria) {
+        GroupOperation group = Aggregation.group("tenantId")
+                .count().as(TOTAL)
+                .sum(flag(ComparisonOperators.valueOf("isActive").equalToValue(true))).as(ACTIVE)
+                .sum(flag(ComparisonOperators.valueOf("isFeatured").equalToValue(true))).as(FEATURED)
+                .sum(flag(ComparisonOperators.valueOf("stockQuantity").lessThanEqualToValue(0))).as(OUT_OF_STOCK);
+        Aggregation aggregation = Aggregation.newAggregation(Aggregation.match(criteria), group);
+        
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Product.class, Document.class)) {
+            if (row.get("_id") instanceof Number tenantId) {
+                counts.put(tenantId.longValue(), new long[] {
+                        longValue(row.get(TOTAL)), longValue(row.get(ACTIVE)),
+                        longValue(row.get(FEATURED)), longValue(row.get(OUT_OF_STOCK))});
+            }
+        }
+        return counts;
+    }
+    
+    private static ConditionalOperators.Cond flag(AggregationExpression condition) {
+        return ConditionalOperators.when(condition).then(1).otherwise(0);
+    }
+    
+    private static long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+    
+    private static boolean isOutOfStock(Integer stockQuantity) {
+        // Matches the aggregation, where a missing quantity sorts below zero
+        return stockQuantity == null || stockQuantity <= 0;
+    }
+    
+    /**
+     * The counted flags of a product, captured before an update mutates it.
+     */
+    public record State(boolean active, boolean featured, boolean outOfStock) {
+        
+        public static State of(Product product) {
+            return new State(Boolean.TRUE.equals(product.getIsActive()),
+                    Boolean.TRUE.equals(product.getIsFeatured()),
+                    isOutOfStock(product.getStockQuantity()));
+        }
+    }
+    
+    private static final class TenantCounters {
+        
+        private final LongAdder total = new LongAdder();
+        private final LongAdder active = new LongAdder();
+        private final LongAdder featured = new LongAdder();
+        private final LongAdder outOfStock = new LongAdder();
+        
+        void add(State state, int delta) {
+            total.add(delta);
+            if (state.active()) {
+                active.add(delta);
+            }
+            if (state.featured()) {
+                featured.add(delta);
+            }
+            if (state.outOfStock()) {
+                outOfStock.add(delta);
+            }
+        }
+        
+        long[] values() {
+            return new long[] {total.sum(), active.sum(), featured.sum(), outOfStock.sum()};
+        }
+        
+        void reconcile(long[] before, long[] counted) {
+            // Shift each counter by (counted - before), keeping anything added since before was read
+            total.add(counted[0] - before[0]);
+            active.add(counted[1] - before[1]);
+            featured.add(counted[2] - before[2]);
+            outOfStock.add(counted[3] - before[3]);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.ecommerce.product.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.product.model.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Applies product events published by any product-service instance to this instance's
+ * in-memory state: the product cache, listing snapshots, search index and facet counts.
+ * Every instance joins with its own consumer group, {@code app.product-events.group-id},
+ * which must be unique per instance, so it sees all events, including its own, which it
+ * has already applied; re-applying an event is harmless.
+ * <p>
+ * The search index and facet counts are rebuilt from a scan once the application is
+ * ready, which can be before the partitions are assigned. So on its first assignment the
+ * listener seeks back to when it was created, less {@code app.product-events.replay-margin}
+ * for clock skew between instances, and every event of a write the scan may have missed
+ * is applied after it.
+ */
+@Component
+@Slf4j
+public class ProductEventListener implements ConsumerSeekAware {
+    
+    private final ProductCache productCache;
+    private final ProductListingSnapshots productListingSnapshots;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ObjectMapper objectMapper;
+    private final long replayFromMillis;
+    private final AtomicBoolean assigned = new AtomicBoolean();
+    
+    public ProductEventListener(ProductCache productCache,
+                                ProductListingSnapshots productListingSnapshots,
+                                ProductSearchIndex productSearchIndex,
+                                ProductFacetIndex productFacetIndex,
+                                ObjectMapper objectMapper,
+                                @Value("${app.product-events.replay-margin:30s}") Duration replayMargin) {
+        this.productCache = productCache;
+        this.productListingSnapshots = productListingSnapshots;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.objectMapper = objectMapper;
+        this.replayFromMillis = System.currentTimeMillis() - replayMargin.toMillis();
+    }
+    
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // Later assignments continue from the committed offsets
+        if (assigned.compareAndSet(false, true)) {
+            callback.seekToTimestamp(assignments.keySet(), replayFromMillis);
+        }
+    }
+    
+    @KafkaListener(
+            topics = "product-events",
+            groupId = "${app.product-events.group-id:product-service-${HOSTNAME:local}}",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer"
+            })
+    public void handleProductEvent(@Header(name = OutboxRelay.EVENT_TYPE_HEADER, required = false) byte[] eventTypeHeader,
+                                   @Payload String payload) {
+        String eventType = eventTypeHeader != null ? new String(eventTypeHeader, StandardCharsets.UTF_8) : null;
+        if (eventType == null) {
+            return;
+        }
+        try {
+            JsonNode product = objectMapper.readTree(payload);
+            String productId = product.path("id").asText(null);
+            
+            switch (eventType) {
+                case "product.created" -> {
+                    indexProduct(product);
+                    productListingSnapshots.onProductChanged(listedFields(product));
+                }
+                case "product.updated" -> {
+                    indexProduct(product);
+                    productCache.invalidate(productId);
+                    productListingSnapshots.onProductChanged(listedFields(product));
+                }
+                case "product.deleted" -> {
+                    Product deleted = listedFields(product);
+                    productSearchIndex.remove(deleted);
+                    productFacetIndex.remove(deleted);
+                    productCache.invalidate(productId);
+                    productListingSnapshots.onProductChanged(deleted);
+                }
+                case "product.stock.updated" -> {
+                    productCache.invalidate(productId);
+                    productListingSnapshots.onProductChanged(listedFields(product));
+                }
+                default -> {
+                    // Other events do not affect cached state
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to apply product event {}", eventType, e);
+        }
+    }
+    
+    private void indexProduct(JsonNode payload) throws Exception {
+        Product product = objectMapper.treeToValue(payload, Product.class);
+        if (product.getId() != null && product.getTenantId() != null) {
+            productSearchIndex.index(product);
+            productFacetIndex.index(product);
+        }
+    }
+    
+    private static Product listedFields(JsonNode product) {
+        // Only the fields that decide which listings a product belongs to
+        return Product.builder()
+                .id(product.path("id").asText(null))
+                .tenantId(product.hasNonNull("tenantId") ? product.get("tenantId").asLong() : null)
+                .category(product.path("category").asText(null))
+                .isFeatured(product.path("isFeatured").asBoolean(false))
+                .build();
+    }
+}
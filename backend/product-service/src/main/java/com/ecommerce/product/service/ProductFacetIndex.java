@@ -0,0 +1,212 @@
+package com.ecommerce.product.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.product.model.Product;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-tenant facet counts over active products (category, brand, price bucket, tag,
+ * featured). Counts are adjusted in place on every write using the facet values
+ * previously recorded for the product, so a facet query never touches the catalog.
+ * Writes on other instances arrive through {@link ProductEventListener}.
+ */
+@Component
+@Slf4j
+public class ProductFacetIndex {
+    
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String PRICE = "price";
+    public static final String TAG = "tag";
+    public static final String FEATURED = "featured";
+    
+    private static final String[] FACET_FIELDS = {"tenantId", "category", "brand", "price", "tags", "isActive", "isFeatured"};
+    
+    private final MongoTemplate mongoTemplate;
+    private final List<BigDecimal> priceBuckets;
+    
+    private final Map<Long, TenantFacets> tenants = new ConcurrentHashMap<>();
+    
+    private volatile boolean ready = false;
+    
+    public ProductFacetIndex(MongoTemplate mongoTemplate,
+                             @Value("${app.product-facets.price-buckets:10,25,50,100,250,500,1000}") List<BigDecimal> priceBuckets) {
+        this.mongoTemplate = mongoTemplate;
+        this.priceBuckets = priceBuckets.stream().sorted().toList();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long count = 0;
+        
+        Query query = new Query();
+        query.fields().include(FACET_FIELDS);
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                if (product.getTenantId() != null) {
+                    index(product);
+                    count++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to build product facet counts, facets will be computed per request", e);
+            return;
+        }
+        
+        ready = true;
+        log.info("Built product facet counts for {} products across {} tenants in {} ms",
+                count, tenants.size(), System.currentTimeMillis() - start);
+    }
+    
+    public void index(Product product) {
+        tenants.computeIfAbsent(product.getTenantId(), id -> new TenantFacets())
+                .put(product.getId(), signatureOf(product));
+    }
+    
+    public void remove(Product product) {
+        TenantFacets facets = tenants.get(product.getTenantId());
+        if (facets != null) {
+            facets.put(product.getId(), null);
+        }
+    }
+    
+    public Map<String, Map<String, Long>> getFacets(Long tenantId, int limit) {
+        TenantFacets facets = ready ? tenants.get(tenantId) : scanTenant(tenantId);
+        if (facets == null) {
+            return emptyFacets();
+        }
+        return facets.snapshot(limit);
+    }
+    
+    private TenantFacets scanTenant(Long tenantId) {
+        // Only used until the startup rebuild has finished
+        TenantFacets facets = new TenantFacets();
+        Query query = new Query(Criteria.where("tenantId").is(tenantId));
+        query.fields().include(FACET_FIELDS);
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> facets.put(product.getId(), signatureOf(product)));
+        }
+        return facets;
+    }
+    
+    private Set<Map.Entry<String, String>> signatureOf(Product product) {
+        if (Boolean.FALSE.equals(product.getIsActive())) {
+            return null;
+        }
+        Set<Map.Entry<String, String>> values = new LinkedHashSet<>();
+        if (product.getCategory() != null) {
+            values.add(Map.entry(CATEGORY, product.getCategory()));
+        }
+        if (product.getBrand() != null) {
+            values.add(Map.entry(BRAND, product.getBrand()));
+        }
+        if (product.getPrice() != null) {
+            values.add(Map.entry(PRICE, priceBucket(product.getPrice())));
+        }
+        if (product.getTags() != null) {
+            for (String tag : product.getTags()) {
+                if (tag != null) {
+                    values.add(Map.entry(TAG, tag));
+                }
+            }
+        }
+        values.add(Map.entry(FEATURED, String.valueOf(Boolean.TRUE.equals(product.getIsFeatured()))));
+        return values;
+    }
+    
+    private String priceBucket(BigDecimal price) {
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : priceBuckets) {
+            if (price.compareTo(upper) < 0) {
+                return lower.toPlainString() + "-" + upper.toPlainString();
+            }
+            lower = upper;
+        }
+        return lower.toPlainString() + "+";
+    }
+    
+    private static Map<String, Map<String, Long>> emptyFacets() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (String facet : List.of(CATEGORY, BRAND, PRICE, TAG, FEATURED)) {
+            result.put(facet, Map.of());
+        }
+        return result;
+    }
+    
+    private static final class TenantFacets {
+        
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Set<Map.Entry<String, String>>> signatures = new HashMap<>();
+        private final Map<String, Map<String, Long>> counts = new HashMap<>();
+        
+        void put(String productId, Set<Map.Entry<String, String>> signature) {
+            lock.writeLock().lock();
+            try {
+                Set<Map.Entry<String, String>> previous = signature == null
+                        ? signatures.remove(productId)
+                        : signatures.put(productId, signature);
+                if (previous != null) {
+                    previous.forEach(value -> adjust(value, -1));
+                }
+                if (signature != null) {
+                    signature.forEach(value -> adjust(value, 1));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        private void adjust(Map.Entry<String, String> value, long delta) {
+            Map<String, Long> facet = counts.computeIfAbsent(value.getKey(), key -> new HashMap<>());
+            long count = facet.getOrDefault(value.getValue(), 0L) + delta;
+            if (count <= 0) {
+                facet.remove(value.getValue());
+            } else {
+                facet.put(value.getValue(), count);
+            }
+        }
+        
+        Map<String, Map<String, Long>> snapshot(int limit) {
+            Map<String, Map<String, Long>> result = emptyFacets();
+            lock.readLock().lock();
+            try {
+                counts.forEach((facet, values) -> {
+                    List<Map.Entry<String, Long>> sorted = new ArrayList<>(values.entrySet());
+                    sorted.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()));
+                    Map<String, Long> top = new LinkedHashMap<>();
+                    for (Map.Entry<String, Long> entry : sorted.subList(0, Math.min(limit, sorted.size()))) {
+                        top.put(entry.getKey(), entry.getValue());
+                    }
+                    result.put(facet, top);
+                });
+            } finally {
+                lock.readLock().unlock();
+            }
+            return result;
+        }
+    }
+}
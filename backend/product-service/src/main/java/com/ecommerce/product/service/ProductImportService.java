@@ -0,0 +1,357 @@
+package com.ecommerce.product.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.ecommerce.product.dto.ProductImportResult;
+import com.ecommerce.product.dto.ProductRequest;
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams NDJSON or CSV catalog imports into Mongo in fixed-size batches: one SKU
+ * lookup and one unordered bulk insert per batch. Each product is inserted with its
+ * product.created event, which the outbox relay publishes. Only the current batch is
+ * held in memory.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+    
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String LIST_SEPARATOR = "\\|";
+    
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+    
+    public ProductImportService(ProductRepository productRepository,
+                                ProductService productService,
+                                MongoTemplate mongoTemplate,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                @Value("${app.product-import.batch-size:1000}") int batchSize) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+    
+    public ProductImportResult importNdjson(InputStream input, Long tenantId, String createdBy) throws IOException {
+        ImportRun run = new ImportRun(tenantId, createdBy);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                long row = ++run.totalRows;
+                try {
+                    JsonNode node = objectMapper.readTree(line);
+                    if (node.isObject()) {
+                        run.add(row, objectMapper.treeToValue(node, ProductRequest.class));
+                    } else {
+                        // null, arrays and scalars are valid JSON but not a product
+                        run.error(row, null, "Invalid row: expected a JSON object");
+                    }
+                } catch (JsonProcessingException e) {
+                    run.error(row, null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+    
+    public ProductImportResult importCsv(InputStream input, Long tenantId, String createdBy) throws IOException {
+        ImportRun run = new ImportRun(tenantId, createdBy);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<String> header = readCsvRecord(reader);
+            if (header == null) {
+                return run.finish();
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            
+            List<String> record;
+            while ((record = readCsvRecord(reader)) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                long row = ++run.totalRows;
+                try {
+                    run.add(row, toProductRequest(columns, record));
+                } catch (RuntimeException e) {
+                    run.error(row, null, "Invalid row: " + e.getMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+    
+    private ProductRequest toProductRequest(Map<String, Integer> columns, List<String> record) {
+        ProductRequest request = new ProductRequest();
+        request.setName(column(columns, record, "name"));
+        request.setDescription(column(columns, record, "description"));
+        request.setCategory(column(columns, record, "category"));
+        request.setBrand(column(columns, record, "brand"));
+        request.setSku(column(columns, record, "sku"));
+        request.setPrice(decimal(column(columns, record, "price")));
+        request.setCompareAtPrice(decimal(column(columns, record, "compareatprice")));
+        request.setStockQuantity(integer(column(columns, record, "stockquantity")));
+        request.setUnit(column(columns, record, "unit"));
+        request.setImages(list(column(columns, record, "images")));
+        request.setTags(list(column(columns, record, "tags")));
+        request.setWeight(integer(column(columns, record, "weight")));
+        request.setWeightUnit(column(columns, record, "weightunit"));
+        
+        String isActive = column(columns, record, "isactive");
+        if (isActive != null) {
+            request.setIsActive(Boolean.parseBoolean(isActive));
+        }
+        String isFeatured = column(columns, record, "isfeatured");
+        if (isFeatured != null) {
+            request.setIsFeatured(Boolean.parseBoolean(isFeatured));
+        }
+        return request;
+    }
+    
+    private static String column(Map<String, Integer> columns, List<String> record, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static BigDecimal decimal(String value) {
+        return value == null ? null : new BigDecimal(value);
+    }
+    
+    private static Integer integer(String value) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+    
+    private static List<String> list(String value) {
+        if (value == null) {
+            return null;
+        }
+        return Arrays.stream(value.split(LIST_SEPARATOR))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Reads one RFC 4180 record: comma separated, fields optionally double-quoted,
+     * quotes escaped by doubling, quoted fields may span lines.
+     */
+    static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Unterminated quoted field");
+            }
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private final class ImportRun {
+        
+        private final Long tenantId;
+        private final String createdBy;
+        private final long startNanos = System.nanoTime();
+        
+        private final List<Long> batchRows = new ArrayList<>(batchSize);
+        private final List<ProductRequest> batch = new ArrayList<>(batchSize);
+        private final List<ProductImportResult.RowError> errors = new ArrayList<>();
+        
+        private long totalRows;
+        private long imported;
+        private long failed;
+        private long batches;
+        
+        ImportRun(Long tenantId, String createdBy) {
+            this.tenantId = tenantId;
+            this.createdBy = createdBy;
+        }
+        
+        void add(long row, ProductRequest request) {
+            Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                error(row, request.getSku(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            batchRows.add(row);
+            batch.add(request);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+        
+        void error(long row, String sku, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ProductImportResult.RowError.builder().row(row).sku(sku).message(message).build());
+            }
+        }
+        
+        ProductImportResult finish() {
+            flush();
+            long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            double seconds = Math.max(durationMillis, 1) / 1000.0;
+            log.info("Imported {} of {} products for tenant {} in {} ms ({} batches)",
+                    imported, totalRows, tenantId, durationMillis, batches);
+            return ProductImportResult.builder()
+                    .totalRows(totalRows)
+                    .imported(imported)
+                    .failed(failed)
+                    .batches(batches)
+                    .durationMillis(durationMillis)
+                    .rowsPerSecond(imported / seconds)
+                    .errors(errors)
+                    .errorsTruncated(failed > errors.size())
+                    .build();
+        }
+        
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            batches++;
+            
+            // One round trip to find SKUs that already exist for the tenant
+            Set<String> batchSkus = batch.stream()
+                    .map(ProductRequest::getSku)
+                    .filter(sku -> sku != null)
+                    .collect(Collectors.toSet());
+            Set<String> existingSkus = batchSkus.isEmpty() ? Set.of()
+                    : productRepository.findSkusByTenantIdAndSkuIn(tenantId, batchSkus).stream()
+                            .map(Product::getSku)
+                            .collect(Collectors.toSet());
+            
+            Set<String> seenSkus = new HashSet<>();
+            List<Long> productRows = new ArrayList<>(batch.size());
+            List<Product> products = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                ProductRequest request = batch.get(i);
+                String sku = request.getSku();
+                if (sku != null && (existingSkus.contains(sku) || !seenSkus.add(sku))) {
+                    error(batchRows.get(i), sku, "SKU already exists for this tenant");
+                    continue;
+                }
+                Product product = productService.newProduct(request, tenantId, createdBy);
+                // Assign ids up front so they are known without reading the bulk result back
+                product.setId(new ObjectId().toHexString());
+                productRows.add(batchRows.get(i));
+                products.add(product);
+            }
+            
+            List<Product> inserted = insert(products, productRows);
+            productService.onProductsImported(inserted);
+            imported += inserted.size();
+            
+            batch.clear();
+            batchRows.clear();
+        }
+        
+        private List<Product> insert(List<Product> products, List<Long> productRows) {
+            if (products.isEmpty()) {
+                return products;
+            }
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)
+                        .insert(products)
+                        .execute();
+                return products;
+            } catch (BulkOperationException e) {
+                // Unordered mode: everything except the reported positions was written
+                Set<Integer> failedPositions = new HashSet<>();
+                for (BulkWriteError writeError : e.getErrors()) {
+                    failedPositions.add(writeError.getIndex());
+                    Product product = products.get(writeError.getIndex());
+                    error(productRows.get(writeError.getIndex()), product.getSku(), writeError.getMessage());
+                }
+                List<Product> inserted = new ArrayList<>(products.size() - failedPositions.size());
+                for (int i = 0; i < products.size(); i++) {
+                    if (!failedPositions.contains(i)) {
+                        inserted.add(products.get(i));
+                    }
+                }
+                return inserted;
+            }
+        }
+    
+    }
+}
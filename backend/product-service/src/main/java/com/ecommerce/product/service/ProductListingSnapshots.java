@@ -0,0 +1,232 @@
+package com.ecommerce.product.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.common.dto.ApiResponse;
+import com.ecommerce.product.dto.ProductSummary;
+import com.ecommerce.product.model.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serialized responses for the featured and category listings, kept per tenant as
+ * immutable byte arrays with a strong ETag derived from the listed data. A product write
+ * marks the snapshots it can affect and they are rebuilt in the background after a short
+ * delay, so bursts of writes cost one rebuild and readers keep getting the previous
+ * snapshot until the new one is ready.
+ */
+@Component
+@Slf4j
+public class ProductListingSnapshots {
+    
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration rebuildDelay;
+    
+    private final Cache<Key, Snapshot> snapshots;
+    private final Set<Key> pending = ConcurrentHashMap.newKeySet();
+    // Snapshots being built on first request are not in the cache yet; writes flag them here
+    private final Map<Key, AtomicBoolean> loading = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "listing-snapshot-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public ProductListingSnapshots(ProductRepository productRepository,
+                                   ObjectMapper objectMapper,
+                                   @Value("${app.listing-snapshots.max-weight-bytes:33554432}") long maxWeightBytes,
+                                   @Value("${app.listing-snapshots.rebuild-delay:500ms}") Duration rebuildDelay) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.rebuildDelay = rebuildDelay;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, Snapshot snapshot) -> snapshot.body().length)
+                .build();
+    }
+    
+    public Snapshot getFeatured(Long tenantId, boolean summary) {
+        return snapshots.get(new Key(tenantId, null, summary), this::load);
+    }
+    
+    public Snapshot getCategory(Long tenantId, String category, boolean summary) {
+        return snapshots.get(new Key(tenantId, category, summary), this::load);
+    }
+    
+    /**
+     * Marks the snapshots that list the product, or would list it after the change.
+     */
+    public void onProductChanged(Product product) {
+        if (product.getTenantId() == null) {
+            return;
+        }
+        snapshots.asMap().forEach((key, snapshot) -> {
+            if (key.tenantId().equals(product.getTenantId())
+                    && (snapshot.productIds().contains(product.getId()) || key.wouldList(product))) {
+                pending.add(key);
+            }
+        });
+        markLoading(product.getTenantId());
+        scheduleRebuild();
+    }
+    
+    public void onTenantChanged(Long tenantId) {
+        snapshots.asMap().keySet().stream()
+                .filter(key -> key.tenantId().equals(tenantId))
+                .forEach(pending::add);
+        markLoading(tenantId);
+        scheduleRebuild();
+    }
+    
+    private void markLoading(Long tenantId) {
+        // What a snapshot still being loaded will list is not known yet, so any write to the tenant counts
+        loading.forEach((key, changed) -> {
+            if (key.tenantId().equals(tenantId)) {
+                changed.set(true);
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+    
+    private void scheduleRebuild() {
+        if (!pending.isEmpty() && rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(this::rebuildPending, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void rebuildPending() {
+        // Clear the flag first so writes landing during the rebuild schedule another pass
+        rebuildScheduled.set(false);
+        for (Key key : List.copyOf(pending)) {
+            pending.remove(key);
+            try {
+                Snapshot snapshot = build(key);
+                // Only refresh snapshots that are still wanted, evicted ones are rebuilt on demand
+                snapshots.asMap().replace(key, snapshot);
+            } catch (Exception e) {
+                log.error("Failed to rebuild listing snapshot {}, dropping it", key, e);
+                snapshots.invalidate(key);
+            }
+        }
+        scheduleRebuild();
+    }
+    
+    /**
+     * Builds a snapshot on first request, again if the tenant was written to while it was
+     * being built. If writes keep landing, the last build is cached and marked for rebuild.
+     */
+    private Snapshot load(Key key) {
+        AtomicBoolean changed = new AtomicBoolean();
+        loading.put(key, changed);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                changed.set(false);
+                Snapshot snapshot = build(key);
+                if (!changed.get()) {
+                    return snapshot;
+                }
+                if (attempt == MAX_LOAD_ATTEMPTS) {
+                    // Cached when this returns, before the delayed rebuild runs
+                    pending.add(key);
+                    scheduleRebuild();
+                    return snapshot;
+                }
+            }
+        } finally {
+            loading.remove(key, changed);
+        }
+    }
+    
+    private Snapshot build(Key key) {
+        if (key.summary()) {
+            List<ProductSummary> products = key.category() == null
+                    ? productRepository.findSummariesByTenantIdAndIsFeaturedTrue(key.tenantId())
+                    : productRepository.findSummariesByTenantIdAndCategory(key.tenantId(), key.category());
+            return serialize(products, ProductSummary::getId);
+        }
+        List<Product> products = key.category() == null
+                ? productRepository.findByTenantIdAndIsFeaturedTrue(key.tenantId())
+                : productRepository.findByTenantIdAndCategory(key.tenantId(), key.category());
+        return serialize(products, Product::getId);
+    }
+    
+    private <T> Snapshot serialize(List<T> products, Function<T, String> idOf) {
+        try {
+            // The ETag covers the data only, so an unchanged listing keeps its ETag across rebuilds and instances
+            String etag = "\"" + sha256(objectMapper.writeValueAsBytes(products)) + "\"";
+            byte[] body = objectMapper.writeValueAsBytes(ApiResponse.success(products));
+            Set<String> productIds = products.stream().map(idOf).collect(Collectors.toUnmodifiableSet());
+            return new Snapshot(body, etag, productIds);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize product listing", e);
+        }
+    }
+    
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private record Key(Long tenantId, String category, boolean summary) {
+        
+        boolean wouldList(Product product) {
+            return category == null
+                    ? Boolean.TRUE.equals(product.getIsFeatured())
+                    : category.equals(product.getCategory());
+        }
+    }
+    
+    /**
+     * A serialized listing. The body is shared between requests and must not be modified.
+     */
+    public record Snapshot(byte[] body, String etag, Set<String> productIds) {
+        
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || Objects.equals(tag, "W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.ecommerce.product.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.product.model.Product;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-tenant in-memory inverted index over product name, brand, tags and description,
+ * ranked with BM25. Kept current by {@link ProductService} on every local write and by
+ * {@link ProductEventListener} for writes on other instances, and rebuilt from a
+ * streaming scan of the collection on startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+    
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    
+    private static final float NAME_BOOST = 3.0f;
+    private static final float BRAND_BOOST = 2.0f;
+    private static final float TAG_BOOST = 2.0f;
+    private static final float DESCRIPTION_BOOST = 1.0f;
+    
+    private static final float PREFIX_PENALTY = 0.7f;
+    private static final float MIN_GRAM_SIMILARITY = 0.5f;
+    private static final int MAX_EXPANSIONS = 50;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    private final Map<Long, TenantIndex> tenants = new ConcurrentHashMap<>();
+    
+    private volatile boolean ready = false;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long count = 0;
+        
+        Query query = new Query();
+        query.fields().include("tenantId", "name", "brand", "tags", "description");
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                if (product.getTenantId() == null) {
+                    continue;
+                }
+                index(product);
+                count++;
+            }
+        } catch (Exception e) {
+            log.error("Failed to build product search index, falling back to database search", e);
+            return;
+        }
+        
+        ready = true;
+        log.info("Built product search index for {} products across {} tenants in {} ms",
+                count, tenants.size(), System.currentTimeMillis() - start);
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public void index(Product product) {
+        tenants.computeIfAbsent(product.getTenantId(), id -> new TenantIndex()).put(product);
+    }
+    
+    public void remove(Product product) {
+        TenantIndex index = tenants.get(product.getTenantId());
+        if (index != null) {
+            index.remove(product.getId());
+        }
+    }
+    
+    public SearchHits search(Long tenantId, String text, int page, int size) {
+        TenantIndex index = tenants.get(tenantId);
+        List<String> terms = TextAnalyzer.tokenize(text);
+        if (index == null || terms.isEmpty()) {
+            return new SearchHits(0, List.of());
+        }
+        
+        List<Map.Entry<String, Float>> ranked = index.score(terms);
+        int from = Math.min(page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        
+        List<String> ids = new ArrayList<>(to - from);
+        for (Map.Entry<String, Float> entry : ranked.subList(from, to)) {
+            ids.add(entry.getKey());
+        }
+        return new SearchHits(ranked.size(), ids);
+    }
+    
+    public record SearchHits(long total, List<String> productIds) {
+    }
+    
+    private record Document(Map<String, Float> termFrequencies, float length) {
+    }
+    
+    private static final class TenantIndex {
+        
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+        private final Map<String, Set<String>> gramIndex = new HashMap<>();
+        private final Map<String, Document> documents = new HashMap<>();
+        private double totalLength = 0;
+        
+        void put(Product product) {
+            Document document = analyze(product);
+            lock.writeLock().lock();
+            try {
+                removeLocked(product.getId());
+                documents.put(product.getId(), document);
+                totalLength += document.length();
+                document.termFrequencies().forEach((term, tf) -> {
+                    Map<String, Float> docs = postings.get(term);
+                    if (docs == null) {
+                        docs = new HashMap<>();
+                        postings.put(term, docs);
+                        for (String gram : TextAnalyzer.grams(term)) {
+                            gramIndex.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                        }
+                    }
+                    docs.put(product.getId(), tf);
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void remove(String productId) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(productId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        private void removeLocked(String productId) {
+            Document previous = documents.remove(productId);
+            if (previous == null) {
+                return;
+            }
+            totalLength -= previous.length();
+            for (String term : previous.termFrequencies().keySet()) {
+                Map<String, Float> docs = postings.get(term);
+                if (docs == null) {
+                    continue;
+                }
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                    for (String gram : TextAnalyzer.grams(term)) {
+                        Set<String> terms = gramIndex.get(gram);
+                        if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                            gramIndex.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+        
+        List<Map.Entry<String, Float>> score(List<String> queryTerms) {
+            lock.readLock().lock();
+            try {
+                int documentCount = documents.size();
+                if (documentCount == 0) {
+                    return List.of();
+                }
+                double averageLength = Math.max(totalLength / documentCount, 1.0);
+                
+                Map<String, Float> scores = new HashMap<>();
+                for (String queryTerm : new LinkedHashSet<>(queryTerms)) {
+                    for (Map.Entry<String, Float> expansion : expand(queryTerm).entrySet()) {
+                        Map<String, Float> docs = postings.get(expansion.getKey());
+                        double idf = Math.log(1 + (documentCount - docs.size() + 0.5) / (docs.size() + 0.5));
+                        docs.forEach((productId, tf) -> {
+                            float docLength = documents.get(productId).length();
+                            double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * docLength / averageLength));
+                            scores.merge(productId, (float) (idf * norm * expansion.getValue()), Float::sum);
+                        });
+                    }
+                }
+                
+                List<Map.Entry<String, Float>> ranked = new ArrayList<>(scores.entrySet());
+                ranked.sort(Map.Entry.<String, Float>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()));
+                return ranked;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        /**
+         * Index terms a query term matches, with a weight: exact match, then prefix
+         * completions, then n-gram neighbours for misspellings and partial words.
+         */
+        private Map<String, Float> expand(String queryTerm) {
+            Map<String, Float> expansions = new LinkedHashMap<>();
+            if (postings.containsKey(queryTerm)) {
+                expansions.put(queryTerm, 1.0f);
+            }
+            
+            for (String term : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet()) {
+                if (expansions.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                expansions.put(term, PREFIX_PENALTY * queryTerm.length() / term.length());
+            }
+            
+            if (expansions.isEmpty()) {
+                Set<String> queryGrams = TextAnalyzer.grams(queryTerm);
+                Map<String, Integer> shared = new HashMap<>();
+                for (String gram : queryGrams) {
+                    Collection<String> terms = gramIndex.getOrDefault(gram, Set.of());
+                    for (String term : terms) {
+                        shared.merge(term, 1, Integer::sum);
+                    }
+                }
+                shared.entrySet().stream()
+                        .map(e -> Map.entry(e.getKey(),
+                                2.0f * e.getValue() / (queryGrams.size() + TextAnalyzer.grams(e.getKey()).size())))
+                        .filter(e -> e.getValue() >= MIN_GRAM_SIMILARITY)
+                        .sorted(Map.Entry.<String, Float>comparingByValue(Comparator.reverseOrder()))
+                        .limit(MAX_EXPANSIONS)
+                        .forEach(e -> expansions.put(e.getKey(), e.getValue() * PREFIX_PENALTY));
+            }
+            return expansions;
+        }
+        
+        private static Document analyze(Product product) {
+            Map<String, Float> frequencies = new HashMap<>();
+            float length = 0;
+            length += addField(frequencies, product.getName(), NAME_BOOST);
+            length += addField(frequencies, product.getBrand(), BRAND_BOOST);
+            if (product.getTags() != null) {
+                for (String tag : product.getTags()) {
+                    length += addField(frequencies, tag, TAG_BOOST);
+                }
+            }
+            length += addField(frequencies, product.getDescription(), DESCRIPTION_BOOST);
+            return new Document(frequencies, length);
+        }
+        
+        private static float addField(Map<String, Float> frequencies, String text, float boost) {
+            List<String> tokens = TextAnalyzer.tokenize(text);
+            for (String token : tokens) {
+                frequencies.merge(token, boost, Float::sum);
+            }
+            return tokens.size() * boost;
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.ecommerce.product.service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import org.springframework.data.domain.Page;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Pageable;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import com.ecommerce.common.dto.CursorPage;
+import com.ecommerce.common.dto.PageCursor;
 import com.ecommerce.product.dto.ProductRequest;
+import com.ecommerce.product.dto.ProductSummary;
+import com.ecommerce.product.model.PendingEvent;
 import com.ecommerce.product.model.Product;
 import com.ecommerce.product.repository.ProductRepository;
 
@@ -21,8 +31,16 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ProductService {
     
+    // Attempts at an update whose stock condition keeps losing to concurrent stock changes
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+    
     private final ProductRepository productRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxService outboxService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCache productCache;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductListingSnapshots productListingSnapshots;
+    private final ProductCounters productCounters;
     
     public Product createProduct(ProductRequest request, Long tenantId, String createdBy) {
         // Check if SKU already exists for this tenant
@@ -30,7 +48,19 @@ public class ProductService {
             throw new RuntimeException("SKU already exists for this tenant");
         }
         
-        Product product = Product.builder()
+        Product product = newProduct(request, tenantId, createdBy);
+        
+        // The product.created event is inserted with the document, see newProduct
+        product = saveUniqueSku(product);
+        productCounters.onCreated(product);
+        onProductSaved(product);
+        
+        return product;
+    }
+    
+    public Product newProduct(ProductRequest request, Long tenantId, String createdBy) {
+        LocalDateTime now = LocalDateTime.now();
+        return Product.builder()
                 .tenantId(tenantId)
                 .name(request.getName())
                 .description(request.getDescription())
@@ -49,60 +79,83 @@ public class ProductService {
                 .weight(request.getWeight())
                 .weightUnit(request.getWeightUnit())
                 .dimensions(request.getDimensions())
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
+                .createdAt(now)
+                .updatedAt(now)
                 .createdBy(createdBy)
                 .updatedBy(createdBy)
+                .pendingEvents(List.of(PendingEvent.of(PendingEvent.PRODUCT_CREATED)))
                 .build();
-        
-        product = productRepository.save(product);
-        
-        // Publish event for other services
-        publishProductCreatedEvent(product);
-        
-        return product;
     }
     
     public Product updateProduct(String productId, ProductRequest request, Long tenantId, String updatedBy) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        
-        if (!product.getTenantId().equals(tenantId)) {
-            throw new RuntimeException("Product does not belong to this tenant");
+        for (int attempt = 1; ; attempt++) {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            
+            if (!product.getTenantId().equals(tenantId)) {
+                throw new RuntimeException("Product does not belong to this tenant");
+            }
+            
+            // Check if SKU already exists for this tenant (if changed)
+            if (request.getSku() != null && !request.getSku().equals(product.getSku()) &&
+                    productRepository.existsByTenantIdAndSku(tenantId, request.getSku())) {
+                throw new RuntimeException("SKU already exists for this tenant");
+            }
+            
+            ProductCounters.State previous = ProductCounters.State.of(product);
+            Integer stockRead = product.getStockQuantity();
+            product.setName(request.getName());
+            product.setDescription(request.getDescription());
+            product.setCategory(request.getCategory());
+            product.setBrand(request.getBrand());
+            product.setSku(request.getSku());
+            product.setPrice(request.getPrice());
+            product.setCompareAtPrice(request.getCompareAtPrice());
+            product.setStockQuantity(request.getStockQuantity());
+            product.setUnit(request.getUnit());
+            product.setImages(request.getImages());
+            product.setAttributes(request.getAttributes());
+            product.setTags(request.getTags());
+            product.setIsActive(request.getIsActive());
+            product.setIsFeatured(request.getIsFeatured());
+            product.setWeight(request.getWeight());
+            product.setWeightUnit(request.getWeightUnit());
+            product.setDimensions(request.getDimensions());
+            product.setUpdatedAt(LocalDateTime.now());
+            product.setUpdatedBy(updatedBy);
+            
+            Product updated = updateUniqueSku(productId, tenantId, product, stockRead);
+            if (updated == null) {
+                // Stock moved (or the product went away) since the read; start over from the current document
+                if (attempt == MAX_UPDATE_ATTEMPTS) {
+                    throw new RuntimeException("Product was changed concurrently, please retry");
+                }
+                continue;
+            }
+            // The product.updated event was recorded by the same update
+            productCounters.onUpdated(previous, updated);
+            onProductSaved(updated);
+            
+            return updated;
         }
-        
-        // Check if SKU already exists for this tenant (if changed)
-        if (request.getSku() != null && !request.getSku().equals(product.getSku()) &&
-                productRepository.existsByTenantIdAndSku(tenantId, request.getSku())) {
+    }
+    
+    private Product updateUniqueSku(String productId, Long tenantId, Product details, Integer stockRead) {
+        try {
+            return productRepository.updateDetails(productId, tenantId, details, stockRead);
+        } catch (DuplicateKeyException e) {
+            // A concurrent write took the SKU between the check above and the update
+            throw new RuntimeException("SKU already exists for this tenant");
+        }
+    }
+    
+    private Product saveUniqueSku(Product product) {
+        try {
+            return productRepository.save(product);
+        } catch (DuplicateKeyException e) {
+            // A concurrent write took the SKU between the check above and the save
             throw new RuntimeException("SKU already exists for this tenant");
         }
-        
-        product.setName(request.getName());
-        product.setDescription(request.getDescription());
-        product.setCategory(request.getCategory());
-        product.setBrand(request.getBrand());
-        product.setSku(request.getSku());
-        product.setPrice(request.getPrice());
-        product.setCompareAtPrice(request.getCompareAtPrice());
-        product.setStockQuantity(request.getStockQuantity());
-        product.setUnit(request.getUnit());
-        product.setImages(request.getImages());
-        product.setAttributes(request.getAttributes());
-        product.setTags(request.getTags());
-        product.setIsActive(request.getIsActive());
-        product.setIsFeatured(request.getIsFeatured());
-        product.setWeight(request.getWeight());
-        product.setWeightUnit(request.getWeightUnit());
-        product.setDimensions(request.getDimensions());
-        product.setUpdatedAt(LocalDateTime.now());
-        product.setUpdatedBy(updatedBy);
-        
-        product = productRepository.save(product);
-        
-        // Publish event for other services
-        publishProductUpdatedEvent(product);
-        
-        return product;
     }
     
     public void deleteProduct(String productId, Long tenantId) {
@@ -113,14 +166,17 @@ public class ProductService {
             throw new RuntimeException("Product does not belong to this tenant");
         }
         
-        productRepository.delete(product);
-        
-        // Publish event for other services
+        // Recorded first: the document that could carry it is about to go, and the relay holds
+        // the event back until the product is gone (or drops it if the delete never happens)
         publishProductDeletedEvent(product);
+        
+        productRepository.delete(product);
+        productCounters.onDeleted(product);
+        onProductDeleted(product);
     }
     
     public Product getProductById(String productId, Long tenantId) {
-        Product product = productRepository.findById(productId)
+        Product product = productCache.get(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         
         if (!product.getTenantId().equals(tenantId)) {
@@ -131,38 +187,110 @@ public class ProductService {
     }
     
     public Product getProductByIdPublic(String productId) {
-        return productRepository.findById(productId)
+        return productCache.get(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
     }
     
+    public List<Product> getProductsByIdsPublic(List<String> productIds) {
+        return productCache.getAll(productIds);
+    }
+    
     public List<Product> getAllProductsByTenant(Long tenantId) {
         return productRepository.findByTenantId(tenantId);
     }
     
-    public Page<Product> getAllProductsByTenant(Long tenantId, Pageable pageable) {
+    public Slice<Product> getAllProductsByTenant(Long tenantId, Pageable pageable) {
         return productRepository.findByTenantId(tenantId, pageable);
     }
     
+    public CursorPage<Product> getAllProductsByTenant(Long tenantId, String cursor, int size) {
+        List<Product> products = productRepository.findByTenantIdAfter(tenantId, false, PageCursor.decode(cursor), size + 1);
+        return CursorPage.of(products, size, product -> new PageCursor(product.getCreatedAt(), product.getId()));
+    }
+    
     public List<Product> getActiveProductsByTenant(Long tenantId) {
         return productRepository.findByTenantIdAndIsActiveTrue(tenantId);
     }
     
-    public Page<Product> getActiveProductsByTenant(Long tenantId, Pageable pageable) {
+    public Slice<Product> getActiveProductsByTenant(Long tenantId, Pageable pageable) {
         return productRepository.findByTenantIdAndIsActiveTrue(tenantId, pageable);
     }
     
+    public CursorPage<Product> getActiveProductsByTenant(Long tenantId, String cursor, int size) {
+        List<Product> products = productRepository.findByTenantIdAfter(tenantId, true, PageCursor.decode(cursor), size + 1);
+        return CursorPage.of(products, size, product -> new PageCursor(product.getCreatedAt(), product.getId()));
+    }
+    
+    public Slice<ProductSummary> getActiveProductSummariesByTenant(Long tenantId, Pageable pageable) {
+        return productRepository.findSummariesByTenantIdAndIsActiveTrue(tenantId, pageable);
+    }
+    
     public List<Product> getProductsByCategory(Long tenantId, String category) {
         return productRepository.findByTenantIdAndCategory(tenantId, category);
     }
     
+    public List<ProductSummary> getProductSummariesByCategory(Long tenantId, String category) {
+        return productRepository.findSummariesByTenantIdAndCategory(tenantId, category);
+    }
+    
     public List<Product> getFeaturedProductsByTenant(Long tenantId) {
         return productRepository.findByTenantIdAndIsFeaturedTrue(tenantId);
     }
     
+    public List<ProductSummary> getFeaturedProductSummariesByTenant(Long tenantId) {
+        return productRepository.findSummariesByTenantIdAndIsFeaturedTrue(tenantId);
+    }
+    
+    public ProductListingSnapshots.Snapshot getFeaturedProductsSnapshot(Long tenantId, boolean summary) {
+        return productListingSnapshots.getFeatured(tenantId, summary);
+    }
+    
+    public ProductListingSnapshots.Snapshot getProductsByCategorySnapshot(Long tenantId, String category, boolean summary) {
+        return productListingSnapshots.getCategory(tenantId, category, summary);
+    }
+    
     public List<Product> searchProductsByName(Long tenantId, String name) {
         return productRepository.findByTenantIdAndNameContainingIgnoreCase(tenantId, name);
     }
     
+    public List<Product> searchProducts(Long tenantId, String query, int page, int size) {
+        if (!productSearchIndex.isReady()) {
+            return searchProductsWithoutIndex(tenantId, query, page, size);
+        }
+        
+        // Load the page of hits in one query and restore ranking order
+        List<String> ids = productSearchIndex.search(tenantId, query, page, size).productIds();
+        return inRankOrder(ids, ids.isEmpty() ? List.of() : productRepository.findAllById(ids), Product::getId);
+    }
+    
+    public List<ProductSummary> searchProductSummaries(Long tenantId, String query, int page, int size) {
+        if (!productSearchIndex.isReady()) {
+            return searchProductsWithoutIndex(tenantId, query, page, size).stream()
+                    .map(ProductSummary::from)
+                    .collect(Collectors.toList());
+        }
+        
+        List<String> ids = productSearchIndex.search(tenantId, query, page, size).productIds();
+        return inRankOrder(ids, ids.isEmpty() ? List.of() : productRepository.findSummariesByIdIn(ids), ProductSummary::getId);
+    }
+    
+    private List<Product> searchProductsWithoutIndex(Long tenantId, String query, int page, int size) {
+        // Index still building after startup, use the regex query until it is ready.
+        // Spring Data already quotes regex metacharacters in Containing values, so pass the raw query.
+        List<Product> products = searchProductsByName(tenantId, query);
+        int from = Math.min(page * size, products.size());
+        return products.subList(from, Math.min(from + size, products.size()));
+    }
+    
+    private static <T> List<T> inRankOrder(List<String> ids, Iterable<T> loaded, Function<T, String> idOf) {
+        Map<String, T> byId = new HashMap<>();
+        loaded.forEach(item -> byId.put(idOf.apply(item), item));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
     public List<Product> searchProductsByCategory(Long tenantId, String category) {
         return productRepository.findByTenantIdAndCategoryContainingIgnoreCase(tenantId, category);
     }
@@ -171,41 +299,123 @@ public class ProductService {
         return productRepository.findByTenantIdAndTagsIn(tenantId, tags);
     }
     
+    public List<ProductSummary> getProductSummariesByTags(Long tenantId, List<String> tags) {
+        return productRepository.findSummariesByTenantIdAndTagsIn(tenantId, tags);
+    }
+    
     public Optional<Product> getProductBySku(Long tenantId, String sku) {
         return productRepository.findByTenantIdAndSku(tenantId, sku);
     }
     
+    public Map<String, Map<String, Long>> getFacets(Long tenantId, int limit) {
+        return productFacetIndex.getFacets(tenantId, limit);
+    }
+    
     public long getProductCountByTenant(Long tenantId) {
-        return productRepository.countByTenantId(tenantId);
+        return productCounters.getTotal(tenantId);
+    }
+    
+    public Map<String, Long> getProductCountsByTenant(Long tenantId) {
+        return productCounters.getCounts(tenantId);
     }
     
     public void updateStockQuantity(String productId, Long tenantId, Integer quantity) {
-        Product product = getProductById(productId, tenantId);
-        product.setStockQuantity(quantity);
-        product.setUpdatedAt(LocalDateTime.now());
-        productRepository.save(product);
-        
-        // Publish stock update event
-        publishStockUpdatedEvent(product);
+        for (int attempt = 1; ; attempt++) {
+            // Read from the database rather than the cache so the shared cached instance is never mutated
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            
+            if (!product.getTenantId().equals(tenantId)) {
+                throw new RuntimeException("Product does not belong to this tenant");
+            }
+            
+            Integer previousStock = product.getStockQuantity();
+            Product updated = productRepository.setStock(productId, tenantId, previousStock, quantity);
+            if (updated != null) {
+                onStockChanged(updated, previousStock);
+                return;
+            }
+            if (attempt == MAX_UPDATE_ATTEMPTS) {
+                throw new RuntimeException("Product stock was changed concurrently, please retry");
+            }
+        }
     }
     
-    private void publishProductCreatedEvent(Product product) {
-        kafkaTemplate.send("product-events", "product.created", product);
-        log.info("Published product created event for product: {}", product.getId());
+    public Optional<Product> decrementStock(String productId, Long tenantId, int quantity) {
+        // Empty when the product is missing, belongs to another tenant or has less than quantity left
+        Product product = productRepository.adjustStock(productId, tenantId, -quantity);
+        if (product != null) {
+            onStockChanged(product, product.getStockQuantity() + quantity);
+        }
+        return Optional.ofNullable(product);
     }
     
-    private void publishProductUpdatedEvent(Product product) {
-        kafkaTemplate.send("product-events", "product.updated", product);
-        log.info("Published product updated event for product: {}", product.getId());
+    /**
+     * Takes stock for a reservation and marks the product with the reservation id. Empty
+     * when the product is missing, has less than quantity left or already holds stock for
+     * this reservation.
+     */
+    public Optional<Product> takeReservedStock(String productId, Long tenantId, int quantity, String reservationId) {
+        Product product = productRepository.takeReservedStock(productId, tenantId, quantity, reservationId);
+        if (product != null) {
+            onStockChanged(product, product.getStockQuantity() + quantity);
+        }
+        return Optional.ofNullable(product);
     }
     
-    private void publishProductDeletedEvent(Product product) {
-        kafkaTemplate.send("product-events", "product.deleted", product);
-        log.info("Published product deleted event for product: {}", product.getId());
+    /**
+     * Gives back stock taken by {@link #takeReservedStock}, if the reservation still holds
+     * any on this product.
+     */
+    public boolean returnReservedStock(String productId, Long tenantId, int quantity, String reservationId) {
+        Product product = productRepository.returnReservedStock(productId, tenantId, quantity, reservationId);
+        if (product == null) {
+            return false;
+        }
+        onStockChanged(product, product.getStockQuantity() - quantity);
+        return true;
+    }
+    
+    public void clearReservation(Collection<String> productIds, Long tenantId, String reservationId) {
+        productRepository.clearReservation(productIds, tenantId, reservationId);
+    }
+    
+    public Product incrementStock(String productId, Long tenantId, int quantity) {
+        Product product = productRepository.adjustStock(productId, tenantId, quantity);
+        if (product == null) {
+            throw new RuntimeException("Product not found");
+        }
+        onStockChanged(product, product.getStockQuantity() - quantity);
+        return product;
+    }
+    
+    public void onProductsImported(List<Product> products) {
+        products.forEach(productCounters::onCreated);
+        products.forEach(this::onProductSaved);
     }
     
-    private void publishStockUpdatedEvent(Product product) {
-        kafkaTemplate.send("product-events", "product.stock.updated", product);
-        log.info("Published stock updated event for product: {}", product.getId());
+    private void onProductSaved(Product product) {
+        productSearchIndex.index(product);
+        productFacetIndex.index(product);
+        productCache.invalidate(product.getId());
+        productListingSnapshots.onProductChanged(product);
+    }
+    
+    private void onProductDeleted(Product product) {
+        productSearchIndex.remove(product);
+        productFacetIndex.remove(product);
+        productCache.invalidate(product.getId());
+        productListingSnapshots.onProductChanged(product);
+    }
+    
+    private void onStockChanged(Product product, Integer previousStock) {
+        productCounters.onStockChanged(product, previousStock);
+        productCache.invalidate(product.getId());
+        productListingSnapshots.onProductChanged(product);
+    }
+    
+    private void publishProductDeletedEvent(Product product) {
+        outboxService.append(OutboxRelay.PRODUCT_EVENTS_TOPIC, OutboxRelay.PRODUCT_DELETED, product.getId(), product);
+        log.info("Published product deleted event for product: {}", product.getId());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.ecommerce.product.service;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.common.dto.StockReservationCommand;
+import com.ecommerce.common.dto.StockReservationRequest;
+import com.ecommerce.common.dto.StockReservationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Handles stock reservation commands from the checkout saga in order-service. Reserve
+ * commands are answered with the outcome; reservations and releases are idempotent by
+ * id, so redelivered commands are safe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockCommandListener {
+    
+    private final StockReservationService stockReservationService;
+    private final OutboxService outboxService;
+    private final ObjectMapper objectMapper;
+    
+    @KafkaListener(
+            topics = StockReservationCommand.TOPIC,
+            groupId = "product-service",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer")
+    public void handleStockCommand(@Payload String payload) {
+        StockReservationCommand command;
+        try {
+            command = objectMapper.readValue(payload, StockReservationCommand.class);
+        } catch (Exception e) {
+            log.error("Discarding unreadable stock command: {}", payload, e);
+            return;
+        }
+        
+        if (command.getType() == StockReservationCommand.Type.RELEASE) {
+            try {
+                stockReservationService.release(command.getReservationId(), command.getTenantId());
+            } catch (Exception e) {
+                log.error("Failed to release stock reservation {}", command.getReservationId(), e);
+            }
+            return;
+        }
+        
+        StockReservationResult result;
+        try {
+            result = stockReservationService.reserve(StockReservationRequest.builder()
+                    .reservationId(command.getReservationId())
+                    .items(command.getItems())
+                    .build(), command.getTenantId());
+        } catch (Exception e) {
+            log.error("Failed to reserve stock for reservation {}", command.getReservationId(), e);
+            result = StockReservationResult.builder()
+                    .reservationId(command.getReservationId())
+                    .status(StockReservationResult.Status.FAILED)
+                    .message(e.getMessage())
+                    .build();
+        }
+        
+        outboxService.append(StockReservationCommand.REPLY_TOPIC, null, command.getReservationId(), result);
+    }
+}
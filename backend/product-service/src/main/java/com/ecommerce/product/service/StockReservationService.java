@@ -0,0 +1,253 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.common.dto.StockReservationCommand;
+import com.ecommerce.common.dto.StockReservationRequest;
+import com.ecommerce.common.dto.StockReservationResult;
+import com.ecommerce.product.model.StockReservation;
+import com.ecommerce.product.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reserves stock for all lines of an order with one conditional {@code $inc} per product
+ * and no locks. If any line cannot be satisfied, lines already decremented are put back.
+ * Reservations are recorded by id so retries and releases are idempotent.
+ * <p>
+ * Each decrement also tags the product with the reservation id, so a reservation that was
+ * interrupted half way (an error or a crash mid-loop) can be rolled back exactly: only
+ * tagged products get their stock back. Reservations left PENDING for longer than
+ * {@code app.stock-reservation.stale-after} are rolled back when the command is
+ * redelivered, and by a periodic sweep that also answers the order.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+    
+    private final ProductService productService;
+    private final StockReservationRepository reservationRepository;
+    private final MongoTemplate mongoTemplate;
+    private final OutboxService outboxService;
+    private final Duration staleAfter;
+    
+    public StockReservationService(ProductService productService,
+                                   StockReservationRepository reservationRepository,
+                                   MongoTemplate mongoTemplate,
+                                   OutboxService outboxService,
+                                   @Value("${app.stock-reservation.stale-after:30s}") Duration staleAfter) {
+        this.productService = productService;
+        this.reservationRepository = reservationRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.outboxService = outboxService;
+        this.staleAfter = staleAfter;
+    }
+    
+    public StockReservationResult reserve(StockReservationRequest request, Long tenantId) {
+        String reservationId = request.getReservationId() != null
+                ? request.getReservationId() : UUID.randomUUID().toString();
+        List<StockReservationRequest.Item> items = mergeLines(request.getItems());
+        
+        LocalDateTime now = LocalDateTime.now();
+        StockReservation reservation = StockReservation.builder()
+                .id(reservationId)
+                .tenantId(tenantId)
+                .items(items)
+                .status(StockReservationResult.Status.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        try {
+            reservationRepository.insert(reservation);
+        } catch (DuplicateKeyException e) {
+            // Retry of a reservation we have already seen
+            StockReservation existing = reservationRepository.findById(reservationId)
+                    .orElseThrow(() -> new RuntimeException("Reservation not found"));
+            if (existing.getStatus() == StockReservationResult.Status.PENDING && isStale(existing)) {
+                // Whoever started it died or gave up half way
+                return toResult(rollBack(existing, null));
+            }
+            // Settled, or still being reserved by an attempt that will answer itself (or be swept)
+            return toResult(existing);
+        }
+        
+        try {
+            for (StockReservationRequest.Item item : items) {
+                if (productService.takeReservedStock(item.getProductId(), tenantId, item.getQuantity(), reservationId).isEmpty()) {
+                    return toResult(rollBack(reservation, item.getProductId()));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to reserve stock for reservation {}, rolling back", reservationId, e);
+            return toResult(rollBack(reservation, null));
+        }
+        
+        StockReservation reserved = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(reservationId)
+                        .and("status").is(StockReservationResult.Status.PENDING)
+                        .and("rollingBack").ne(true)),
+                new Update()
+                        .set("status", StockReservationResult.Status.RESERVED)
+                        .set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+        if (reserved == null) {
+            // Rolled back by a redelivery or the sweep while we were slow; give back what we took since
+            return toResult(rollBack(reservation, null));
+        }
+        clearTags(reserved);
+        log.info("Reserved stock for {} products under reservation {}", items.size(), reservationId);
+        return toResult(reserved);
+    }
+    
+    public StockReservationResult release(String reservationId, Long tenantId) {
+        // Flip RESERVED -> RELEASED atomically so a reservation is only ever released once
+        Query query = new Query(Criteria.where("_id").is(reservationId)
+                .and("tenantId").is(tenantId)
+                .and("status").is(StockReservationResult.Status.RESERVED));
+        Update update = new Update()
+                .set("status", StockReservationResult.Status.RELEASED)
+                .set("updatedAt", LocalDateTime.now());
+        StockReservation reservation = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+        
+        if (reservation == null) {
+            StockReservation existing = reservationRepository.findById(reservationId)
+                    .filter(r -> r.getTenantId().equals(tenantId))
+                    .orElseThrow(() -> new RuntimeException("Reservation not found"));
+            if (existing.getStatus() == StockReservationResult.Status.PENDING && isStale(existing)) {
+                return toResult(rollBack(existing, null));
+            }
+            return toResult(existing);
+        }
+        
+        compensate(reservation.getItems(), tenantId);
+        log.info("Released stock reservation {}", reservationId);
+        return toResult(reservation);
+    }
+    
+    /**
+     * Rolls back reservations that have been PENDING for too long and tells order-service
+     * they failed.
+     */
+    @Scheduled(fixedDelayString = "${app.stock-reservation.sweep-interval-ms:30000}")
+    public void rollBackStale() {
+        Query query = new Query(Criteria.where("status").is(StockReservationResult.Status.PENDING)
+                .and("updatedAt").lt(LocalDateTime.now().minus(staleAfter)))
+                .limit(500);
+        for (StockReservation reservation : mongoTemplate.find(query, StockReservation.class)) {
+            try {
+                StockReservationResult result = toResult(rollBack(reservation, null));
+                outboxService.append(StockReservationCommand.REPLY_TOPIC, null, reservation.getId(), result);
+                log.warn("Rolled back stale stock reservation {}", reservation.getId());
+            } catch (Exception e) {
+                log.error("Failed to roll back stale stock reservation {}", reservation.getId(), e);
+            }
+        }
+    }
+    
+    public StockReservationResult getReservation(String reservationId, Long tenantId) {
+        return reservationRepository.findById(reservationId)
+                .filter(r -> r.getTenantId().equals(tenantId))
+                .map(this::toResult)
+                .orElseThrow(() -> new RuntimeException("Reservation not found"));
+    }
+    
+    /**
+     * Gives back every line the reservation still holds and marks it FAILED. The rollback
+     * is claimed first, so a slow reserve can no longer complete it. If stock cannot be
+     * returned the reservation stays PENDING, so a later attempt finishes the job.
+     */
+    private StockReservation rollBack(StockReservation reservation, String failedProductId) {
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(reservation.getId()).and("status").is(StockReservationResult.Status.PENDING)),
+                new Update().set("rollingBack", true),
+                StockReservation.class);
+        StockReservation current = reservationRepository.findById(reservation.getId()).orElseThrow();
+        if (current.getStatus() == StockReservationResult.Status.RESERVED
+                || current.getStatus() == StockReservationResult.Status.RELEASED) {
+            return current;
+        }
+        
+        for (StockReservationRequest.Item item : reservation.getItems()) {
+            productService.returnReservedStock(item.getProductId(), reservation.getTenantId(), item.getQuantity(),
+                    reservation.getId());
+        }
+        Update update = new Update()
+                .set("status", StockReservationResult.Status.FAILED)
+                .set("updatedAt", LocalDateTime.now());
+        if (failedProductId != null) {
+            update.set("failedProductId", failedProductId);
+        }
+        StockReservation failed = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(reservation.getId()).and("status").is(StockReservationResult.Status.PENDING)),
+                update, FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+        return failed != null ? failed : reservationRepository.findById(reservation.getId()).orElseThrow();
+    }
+    
+    private void compensate(List<StockReservationRequest.Item> items, Long tenantId) {
+        for (StockReservationRequest.Item item : items) {
+            try {
+                productService.incrementStock(item.getProductId(), tenantId, item.getQuantity());
+            } catch (Exception e) {
+                log.error("Failed to return {} units of product {} to stock", item.getQuantity(), item.getProductId(), e);
+            }
+        }
+    }
+    
+    private void clearTags(StockReservation reservation) {
+        try {
+            productService.clearReservation(reservation.getItems().stream()
+                    .map(StockReservationRequest.Item::getProductId)
+                    .toList(), reservation.getTenantId(), reservation.getId());
+        } catch (Exception e) {
+            // Leftover tags only cost space; the reservation is settled either way
+            log.warn("Failed to clear tags of stock reservation {}", reservation.getId(), e);
+        }
+    }
+    
+    private boolean isStale(StockReservation reservation) {
+        return reservation.getUpdatedAt().isBefore(LocalDateTime.now().minus(staleAfter));
+    }
+    
+    private StockReservationResult toResult(StockReservation reservation) {
+        String message = switch (reservation.getStatus()) {
+            case RESERVED -> "Stock reserved";
+            case RELEASED -> "Stock released";
+            case FAILED -> reservation.getFailedProductId() != null
+                    ? "Insufficient stock for product: " + reservation.getFailedProductId()
+                    : "Stock reservation failed and was rolled back";
+            case PENDING -> "Reservation in progress";
+        };
+        return StockReservationResult.builder()
+                .reservationId(reservation.getId())
+                .status(reservation.getStatus())
+                .failedProductId(reservation.getFailedProductId())
+                .message(message)
+                .build();
+    }
+    
+    private static List<StockReservationRequest.Item> mergeLines(List<StockReservationRequest.Item> items) {
+        // The same product may appear on several order lines
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (StockReservationRequest.Item item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        List<StockReservationRequest.Item> merged = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> merged.add(new StockReservationRequest.Item(productId, quantity)));
+        return merged;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecommerce.product.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tokenizes and normalizes product text for the search index: strips accents,
+ * lowercases, splits on anything that is not a letter or digit and drops stop words.
+ */
+public final class TextAnalyzer {
+    
+    public static final int GRAM_SIZE = 3;
+    
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in",
+            "is", "it", "of", "on", "or", "the", "to", "with");
+    
+    private TextAnalyzer() {
+    }
+    
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("").toLowerCase(Locale.ROOT);
+        
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Character n-grams of a term, padded so that short terms and word boundaries
+     * still produce grams ("usb" -> "$us", "usb", "sb$").
+     */
+    public static Set<String> grams(String term) {
+        Set<String> grams = new LinkedHashSet<>();
+        String padded = "$" + term + "$";
+        if (padded.length() <= GRAM_SIZE) {
+            grams.add(padded);
+            return grams;
+        }
+        for (int i = 0; i + GRAM_SIZE <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+}
@@ -53,12 +53,18 @@ CREATE TABLE IF NOT EXISTS orders (
     payment_status ENUM('PENDING', 'PAID', 'FAILED', 'REFUNDED') DEFAULT 'PENDING',
     payment_method VARCHAR(50),
     notes TEXT,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- Microseconds, so timestamps read back match the ones published with order events
+    created_at DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6),
+    updated_at DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    -- Bumped by every change, orders the published states of one order
+    version BIGINT NOT NULL DEFAULT 0,
     INDEX idx_user_id (user_id),
     INDEX idx_tenant_id (tenant_id),
     INDEX idx_order_number (order_number),
     INDEX idx_status (status),
+    INDEX idx_tenant_created (tenant_id, created_at, id),
+    INDEX idx_user_created (user_id, created_at, id),
+    INDEX idx_status_updated (status, updated_at),
     FOREIGN KEY (user_id) REFERENCES users(id),
     FOREIGN KEY (tenant_id) REFERENCES tenants(id)
 );
@@ -78,6 +84,152 @@ CREATE TABLE IF NOT EXISTS order_items (
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
 );
 
+-- Archived orders: delivered and cancelled orders moved out of the hot tables by age
+CREATE TABLE IF NOT EXISTS orders_archive (
+    id BIGINT PRIMARY KEY,
+    order_number VARCHAR(50) UNIQUE NOT NULL,
+    user_id BIGINT NOT NULL,
+    tenant_id BIGINT NOT NULL,
+    status ENUM('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED') NOT NULL,
+    total_amount DECIMAL(10,2) NOT NULL,
+    shipping_address TEXT NOT NULL,
+    billing_address TEXT NOT NULL,
+    payment_status ENUM('PENDING', 'PAID', 'FAILED', 'REFUNDED') NOT NULL,
+    payment_method VARCHAR(50),
+    notes TEXT,
+    created_at DATETIME(6) NULL,
+    updated_at DATETIME(6) NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_tenant_created (tenant_id, created_at, id),
+    INDEX idx_user_created (user_id, created_at, id)
+);
+
+CREATE TABLE IF NOT EXISTS order_items_archive (
+    id BIGINT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    product_name VARCHAR(255) NOT NULL,
+    quantity INT NOT NULL,
+    unit_price DECIMAL(10,2) NOT NULL,
+    total_price DECIMAL(10,2) NOT NULL,
+    created_at TIMESTAMP NULL,
+    INDEX idx_order_id (order_id)
+);
+
+-- Pooled id blocks for orders and order items, handed out by Hibernate's table generator
+CREATE TABLE IF NOT EXISTS id_generators (
+    name VARCHAR(64) PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+-- The pooled optimizer reads next_val as the top of a block, so seed past MAX(id) by the allocationSize (100)
+INSERT IGNORE INTO id_generators (name, next_val) SELECT 'orders', COALESCE(MAX(id), 0) + 100 FROM orders;
+INSERT IGNORE INTO id_generators (name, next_val) SELECT 'order_items', COALESCE(MAX(id), 0) + 100 FROM order_items;
+
+-- Per-tenant day and hour order rollups, maintained from order events
+CREATE TABLE IF NOT EXISTS order_rollups (
+    tenant_id BIGINT NOT NULL,
+    granularity ENUM('DAY', 'HOUR') NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    gross_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    paid_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    refunded_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    pending_count BIGINT NOT NULL DEFAULT 0,
+    confirmed_count BIGINT NOT NULL DEFAULT 0,
+    shipped_count BIGINT NOT NULL DEFAULT 0,
+    delivered_count BIGINT NOT NULL DEFAULT 0,
+    cancelled_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (tenant_id, granularity, bucket_start)
+);
+
+-- Last contribution of each order to the rollups, used to apply events idempotently
+CREATE TABLE IF NOT EXISTS order_rollup_state (
+    order_id BIGINT PRIMARY KEY,
+    tenant_id BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    payment_status VARCHAR(20) NOT NULL,
+    total_amount DECIMAL(10,2) NOT NULL,
+    version BIGINT NOT NULL,
+    INDEX idx_tenant_id (tenant_id)
+);
+
+-- Idempotency-Key claims and the responses replayed to retries
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    tenant_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    scope VARCHAR(64) NOT NULL,
+    idem_key VARCHAR(255) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    status ENUM('IN_PROGRESS', 'COMPLETED') NOT NULL,
+    response_status INT NULL,
+    response_body MEDIUMTEXT NULL,
+    response_headers TEXT NULL,
+    created_at DATETIME NOT NULL,
+    expires_at DATETIME NOT NULL,
+    PRIMARY KEY (tenant_id, user_id, scope, idem_key),
+    INDEX idx_expires_at (expires_at)
+);
+
+-- Append-only order lifecycle log; status columns hold the values after each event
+CREATE TABLE IF NOT EXISTS order_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    tenant_id BIGINT NOT NULL,
+    event_type ENUM('CREATED', 'STATUS_CHANGED', 'PAYMENT_CHANGED') NOT NULL,
+    status VARCHAR(20) NULL,
+    payment_status VARCHAR(20) NULL,
+    payload MEDIUMTEXT NULL,
+    occurred_at DATETIME(6) NOT NULL,
+    INDEX idx_order_id (order_id, id)
+);
+
+-- Latest state of each order folded from its events, replayed from last_event_id on
+CREATE TABLE IF NOT EXISTS order_snapshots (
+    order_id BIGINT PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    state MEDIUMTEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
+
+-- Accepted checkout tickets; open tickets are owned by one instance until claimed_until
+CREATE TABLE IF NOT EXISTS checkout_tickets (
+    id CHAR(36) PRIMARY KEY,
+    tenant_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    request MEDIUMTEXT NOT NULL,
+    status ENUM('QUEUED', 'PRICING', 'PERSISTING', 'COMPLETED', 'FAILED') NOT NULL,
+    order_id BIGINT NULL,
+    order_number VARCHAR(255) NULL,
+    message VARCHAR(1000) NULL,
+    owner VARCHAR(64) NULL,
+    claimed_until DATETIME(6) NULL,
+    accepted_at DATETIME(6) NOT NULL,
+    completed_at DATETIME(6) NULL,
+    INDEX idx_status_claimed (status, claimed_until),
+    INDEX idx_owner (owner),
+    INDEX idx_completed_at (completed_at)
+);
+
+-- Order number generator node leases
+CREATE TABLE IF NOT EXISTS order_number_nodes (
+    node_id INT PRIMARY KEY,
+    instance_id VARCHAR(64) NOT NULL,
+    heartbeat_at TIMESTAMP NOT NULL
+);
+
+-- Outbox for order events, drained to Kafka in id order by the order-service relay
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    aggregate_id VARCHAR(64) NOT NULL,
+    topic VARCHAR(100) NOT NULL,
+    event_type VARCHAR(100) NULL,
+    payload MEDIUMTEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Tenant invitations table
 CREATE TABLE IF NOT EXISTS tenant_invitations (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,